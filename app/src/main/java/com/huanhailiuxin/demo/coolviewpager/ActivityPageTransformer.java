@@ -2,16 +2,20 @@ package com.huanhailiuxin.demo.coolviewpager;
 
 import android.os.Bundle;
 import android.support.v4.view.ViewPager;
+import android.util.Log;
 import android.view.View;
 import android.view.Window;
 import android.view.WindowManager;
 
 import com.huanhailiuxin.coolviewpager.CoolViewPager;
+import com.huanhailiuxin.coolviewpager.transformer.KeyframeTransformer;
+import com.huanhailiuxin.coolviewpager.transformer.PagePropertyWriter;
 
 import java.util.ArrayList;
 import java.util.List;
 
 public class ActivityPageTransformer extends BaseActivity {
+    private static final String TAG = "ActivityPageTransformer";
     private CoolViewPager vp;
     ActivityOrientation.MyAdapter adapter;
 
@@ -27,6 +31,19 @@ public class ActivityPageTransformer extends BaseActivity {
 
     private void initViews() {
         vp = findViewById(R.id.vp);
+        //每次滑动结束后输出当前PageTransformer实际写入及跳过的属性写入次数
+        vp.addOnPageChangeListener(new CoolViewPager.SimpleOnPageChangeListener() {
+            @Override
+            public void onPageScrollStateChanged(int state) {
+                if (state != CoolViewPager.SCROLL_STATE_IDLE || currIndex < 0
+                        || !(verticals[currIndex] instanceof KeyframeTransformer)) {
+                    return;
+                }
+                PagePropertyWriter writer = ((KeyframeTransformer) verticals[currIndex]).getPropertyWriter();
+                Log.d(TAG, "writes: " + writer.getWriteCount() + ", skipped: " + writer.getSkippedWriteCount());
+                writer.resetCounts();
+            }
+        });
         initData();
     }
 
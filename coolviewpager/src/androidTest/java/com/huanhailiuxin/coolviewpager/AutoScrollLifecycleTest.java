@@ -0,0 +1,182 @@
+package com.huanhailiuxin.coolviewpager;
+
+import android.app.Instrumentation;
+import android.os.SystemClock;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.rule.ActivityTestRule;
+import android.support.test.runner.AndroidJUnit4;
+import android.view.View;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * detach/attach、隐藏/显示、窗口失去/获得焦点时,自动滚动应暂停,恢复后只等待暂停前剩余的时间
+ */
+@RunWith(AndroidJUnit4.class)
+public class AutoScrollLifecycleTest {
+    private static final int INTERVAL = 2000;
+    //暂停前已经等待的时间
+    private static final long ELAPSED_BEFORE_PAUSE = 800;
+    //暂停的时长,超过一个间隔以确认暂停期间没有滚动
+    private static final long PAUSE_DURATION = INTERVAL + 500;
+    //主线程调度及计时误差
+    private static final long TOLERANCE = 300;
+
+    @Rule
+    public ActivityTestRule<PagerTestActivity> mActivityRule = new ActivityTestRule<>(PagerTestActivity.class);
+
+    private Instrumentation mInstrumentation;
+    private CoolViewPager mPager;
+    private volatile CountDownLatch mSelected;
+
+    @Before
+    public void setUp() {
+        mInstrumentation = InstrumentationRegistry.getInstrumentation();
+        mSelected = new CountDownLatch(1);
+        mInstrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                mPager = mActivityRule.getActivity().addPager();
+                mPager.setAdapter(new TestPagerAdapter(5));
+                mPager.addOnPageChangeListener(new CoolViewPager.SimpleOnPageChangeListener() {
+                    @Override
+                    public void onPageSelected(int position) {
+                        mSelected.countDown();
+                    }
+                });
+            }
+        });
+        mInstrumentation.waitForIdleSync();
+    }
+
+    @Test
+    public void detachAndReattach() throws Exception {
+        runPauseResume(new Runnable() {
+            @Override
+            public void run() {
+                mActivityRule.getActivity().getContainer().removeView(mPager);
+            }
+        }, new Runnable() {
+            @Override
+            public void run() {
+                mActivityRule.getActivity().getContainer().addView(mPager);
+            }
+        });
+    }
+
+    @Test
+    public void hideAndShow() throws Exception {
+        runPauseResume(new Runnable() {
+            @Override
+            public void run() {
+                mPager.setVisibility(View.INVISIBLE);
+            }
+        }, new Runnable() {
+            @Override
+            public void run() {
+                mPager.setVisibility(View.VISIBLE);
+            }
+        });
+    }
+
+    @Test
+    public void hideParentAndShow() throws Exception {
+        runPauseResume(new Runnable() {
+            @Override
+            public void run() {
+                mActivityRule.getActivity().getContainer().setVisibility(View.GONE);
+            }
+        }, new Runnable() {
+            @Override
+            public void run() {
+                mActivityRule.getActivity().getContainer().setVisibility(View.VISIBLE);
+            }
+        });
+    }
+
+    @Test
+    public void loseAndRegainWindowFocus() throws Exception {
+        runPauseResume(new Runnable() {
+            @Override
+            public void run() {
+                mPager.onWindowFocusChanged(false);
+            }
+        }, new Runnable() {
+            @Override
+            public void run() {
+                mPager.onWindowFocusChanged(true);
+            }
+        });
+    }
+
+    private void runPauseResume(final Runnable pause, final Runnable resume) throws Exception {
+        final int startItem = getCurrentItem();
+        mInstrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                mPager.setAutoScroll(true, INTERVAL);
+                assertTrue(mPager.isAutoScrollTicking());
+            }
+        });
+        SystemClock.sleep(ELAPSED_BEFORE_PAUSE);
+
+        final long[] remaining = new long[1];
+        mInstrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                pause.run();
+                assertFalse("auto scroll should pause", mPager.isAutoScrollTicking());
+                remaining[0] = mPager.getAutoScrollRemaining();
+            }
+        });
+        assertTrue("remaining " + remaining[0], remaining[0] > 0);
+        assertTrue("remaining " + remaining[0], remaining[0] <= INTERVAL - ELAPSED_BEFORE_PAUSE);
+
+        //暂停期间不滚动,剩余时间保持不变
+        assertFalse("scrolled while paused", mSelected.await(PAUSE_DURATION, TimeUnit.MILLISECONDS));
+        assertEquals(startItem, getCurrentItem());
+        mInstrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                assertEquals(remaining[0], mPager.getAutoScrollRemaining());
+            }
+        });
+
+        final long[] resumeTime = new long[1];
+        mInstrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                resume.run();
+                resumeTime[0] = SystemClock.uptimeMillis();
+                assertTrue("auto scroll should resume", mPager.isAutoScrollTicking());
+                assertEquals(-1, mPager.getAutoScrollRemaining());
+            }
+        });
+        //恢复后只等待剩余的时间,而不是完整的间隔
+        assertTrue("did not resume", mSelected.await(remaining[0] + TOLERANCE, TimeUnit.MILLISECONDS));
+        final long waited = SystemClock.uptimeMillis() - resumeTime[0];
+        assertTrue("waited " + waited + " of remaining " + remaining[0], waited >= remaining[0] - TOLERANCE);
+        assertTrue(getCurrentItem() != startItem);
+    }
+
+    private int getCurrentItem() {
+        final int[] item = new int[1];
+        mInstrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                item[0] = mPager.getCurrentItem();
+            }
+        });
+        return item[0];
+    }
+}
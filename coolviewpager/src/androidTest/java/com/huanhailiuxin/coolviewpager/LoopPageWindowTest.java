@@ -0,0 +1,168 @@
+package com.huanhailiuxin.coolviewpager;
+
+import android.app.Instrumentation;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.rule.ActivityTestRule;
+import android.support.test.runner.AndroidJUnit4;
+
+import com.huanhailiuxin.coolviewpager.adapter.LoopPagerAdapterWrapper;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 循环模式下反复切换页面及自动滚动,存活页面数及子View数不应增长,
+ * 每次滚动结束后当前页都应跳回真实页面的范围内
+ */
+@RunWith(AndroidJUnit4.class)
+public class LoopPageWindowTest {
+    private static final int PAGE_COUNT = 8;
+    private static final int OFFSCREEN_LIMIT = 1;
+    //当前页+两侧缓存页,再加上两侧各一个辅助页
+    private static final int MAX_ALIVE_PAGES = 2 * OFFSCREEN_LIMIT + 1 + 2;
+    private static final int JUMP_CYCLES = 5000;
+    private static final int AUTO_SCROLL_CYCLES = 500;
+    private static final int SCROLL_DURATION = 16;
+
+    @Rule
+    public ActivityTestRule<PagerTestActivity> mActivityRule = new ActivityTestRule<>(PagerTestActivity.class);
+
+    private Instrumentation mInstrumentation;
+    private CoolViewPager mPager;
+    private TestPagerAdapter mAdapter;
+
+    @Before
+    public void setUp() {
+        mInstrumentation = InstrumentationRegistry.getInstrumentation();
+    }
+
+    @Test
+    public void ghostPageLoopStaysBounded() throws Exception {
+        runCycles(CoolViewPager.LoopMode.GHOST_PAGE);
+    }
+
+    @Test
+    public void virtualCountLoopStaysBounded() throws Exception {
+        runCycles(CoolViewPager.LoopMode.VIRTUAL_COUNT);
+    }
+
+    private void runCycles(final CoolViewPager.LoopMode loopMode) throws Exception {
+        mInstrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                mPager = mActivityRule.getActivity().addPager();
+                mPager.setOffscreenPageLimit(OFFSCREEN_LIMIT);
+                mPager.setLoopMode(loopMode);
+                mPager.setInfiniteLoop(true);
+                mAdapter = new TestPagerAdapter(PAGE_COUNT);
+                mPager.setAdapter(mAdapter);
+            }
+        });
+        mInstrumentation.waitForIdleSync();
+
+        //平滑滚动到相邻页并等待滚动结束(IDLE时才会从辅助页或虚拟数量的两端跳回),覆盖两个方向及跨越循环边界
+        mInstrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                mPager.setScrollDuration(true, SCROLL_DURATION);
+            }
+        });
+        int expectedRealItem = mPager.getRealCurrentItem();
+        int wraps = 0;
+        for (int i = 0; i < JUMP_CYCLES; i++) {
+            final int step = i % 7 == 6 ? -1 : 1;
+            settle(new Runnable() {
+                @Override
+                public void run() {
+                    mPager.setCurrentItem(mPager.getCurrentItem() + step, true);
+                }
+            });
+            final int nextRealItem = (expectedRealItem + step + PAGE_COUNT) % PAGE_COUNT;
+            if (nextRealItem != expectedRealItem + step) {
+                wraps++;
+            }
+            expectedRealItem = nextRealItem;
+            assertEquals("real item after " + (i + 1) + " jumps", expectedRealItem, mPager.getRealCurrentItem());
+        }
+        assertTrue("loop boundary never crossed", wraps > 0);
+
+        //按自动滚动的路径平滑滚动,每次等待滚动结束
+        mInstrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                mPager.setAutoScroll(true, Integer.MAX_VALUE);
+            }
+        });
+        for (int i = 0; i < AUTO_SCROLL_CYCLES; i++) {
+            settle(new Runnable() {
+                @Override
+                public void run() {
+                    mPager.autoScrollNextPage();
+                }
+            });
+        }
+        mInstrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                mPager.setAutoScroll(false);
+            }
+        });
+    }
+
+    /**
+     * 在主线程中发起一次平滑滚动,等待滚动结束后检查页面数,以及当前页已跳回真实页面的范围内
+     *
+     * @param scroll
+     */
+    private void settle(final Runnable scroll) throws InterruptedException {
+        final CountDownLatch idle = new CountDownLatch(1);
+        final CoolViewPager.OnPageChangeListener listener = new CoolViewPager.SimpleOnPageChangeListener() {
+            @Override
+            public void onPageScrollStateChanged(int state) {
+                if (state == CoolViewPager.SCROLL_STATE_IDLE) {
+                    idle.countDown();
+                }
+            }
+        };
+        mInstrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                mPager.addOnPageChangeListener(listener);
+                scroll.run();
+            }
+        });
+        assertTrue("scroll did not settle", idle.await(5, TimeUnit.SECONDS));
+        mInstrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                mPager.removeOnPageChangeListener(listener);
+                assertBounded();
+                final LoopPagerAdapterWrapper loopAdapter = (LoopPagerAdapterWrapper) mPager.getAdapter();
+                final int item = mPager.getCurrentItem();
+                final boolean outOfRealRange = loopAdapter.isVirtualCount()
+                        ? item == 0 || item == loopAdapter.getCount() - 1
+                        : loopAdapter.isGhostPosition(item);
+                assertFalse("current item " + item + " was not reset into the real range", outOfRealRange);
+            }
+        });
+    }
+
+    private void assertBounded() {
+        final int alive = mPager.getAlivePageCount();
+        final int wrapperAlive = ((LoopPagerAdapterWrapper) mPager.getAdapter()).getAlivePageCount();
+        final int children = mPager.getChildCount();
+        assertTrue("alive pages " + alive, alive <= MAX_ALIVE_PAGES);
+        assertTrue("wrapper alive pages " + wrapperAlive, wrapperAlive <= MAX_ALIVE_PAGES);
+        assertTrue("child count " + children, children <= MAX_ALIVE_PAGES);
+        assertTrue("adapter live pages " + mAdapter.getLivePageCount(), mAdapter.getLivePageCount() <= MAX_ALIVE_PAGES);
+    }
+}
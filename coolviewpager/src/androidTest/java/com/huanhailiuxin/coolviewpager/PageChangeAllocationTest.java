@@ -0,0 +1,161 @@
+package com.huanhailiuxin.coolviewpager;
+
+import android.app.Instrumentation;
+import android.os.Debug;
+import android.support.annotation.NonNull;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.rule.ActivityTestRule;
+import android.support.test.runner.AndroidJUnit4;
+import android.support.v4.view.PagerAdapter;
+import android.view.View;
+import android.view.ViewGroup;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 稳定状态下切换页面时的内存分配次数.
+ * Adapter复用页面View,统计到的分配基本都来自CoolViewPager自身
+ *
+ * <p>
+ * 调试日志开启时populate、measure、layout都会拼接日志字符串,测试期间关闭调试日志.
+ * </p>
+ */
+@RunWith(AndroidJUnit4.class)
+public class PageChangeAllocationTest {
+    private static final int PAGE_COUNT = 10;
+    private static final int WARM_UP_CHANGES = 200;
+    private static final int MEASURED_CHANGES = 1000;
+    //每次切换页面平均允许的分配次数,ItemInfo及页面排序不应再产生分配
+    private static final int ALLOCATIONS_PER_CHANGE = 8;
+
+    @Rule
+    public ActivityTestRule<PagerTestActivity> mActivityRule = new ActivityTestRule<>(PagerTestActivity.class);
+
+    private CoolViewPager mPager;
+    private int mDirection = 1;
+    private boolean mDebug;
+
+    @Before
+    public void disableDebugLog() {
+        mDebug = CoolViewPager.sDebug;
+        CoolViewPager.sDebug = false;
+    }
+
+    @After
+    public void restoreDebugLog() {
+        CoolViewPager.sDebug = mDebug;
+    }
+
+    @Test
+    public void itemInfosComeFromPool() {
+        final Instrumentation instrumentation = setUpPager();
+        final int[] itemInfoAllocations = new int[1];
+        instrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < WARM_UP_CHANGES; i++) {
+                    changePage();
+                }
+                final int warmAllocations = mPager.getItemInfoAllocationCount();
+                for (int i = 0; i < MEASURED_CHANGES; i++) {
+                    changePage();
+                }
+                itemInfoAllocations[0] = mPager.getItemInfoAllocationCount() - warmAllocations;
+            }
+        });
+        assertEquals(0, itemInfoAllocations[0]);
+    }
+
+    @Test
+    public void pageChangeAllocations() {
+        final Instrumentation instrumentation = setUpPager();
+        final int[] allocations = new int[1];
+        instrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < WARM_UP_CHANGES; i++) {
+                    changePage();
+                }
+                Debug.resetThreadAllocCount();
+                Debug.startAllocCounting();
+                for (int i = 0; i < MEASURED_CHANGES; i++) {
+                    changePage();
+                }
+                Debug.stopAllocCounting();
+                allocations[0] = Debug.getThreadAllocCount();
+            }
+        });
+        final float perChange = allocations[0] / (float) MEASURED_CHANGES;
+        assertTrue("allocations per page change: " + perChange, perChange <= ALLOCATIONS_PER_CHANGE);
+    }
+
+    private Instrumentation setUpPager() {
+        final Instrumentation instrumentation = InstrumentationRegistry.getInstrumentation();
+        instrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                mPager = mActivityRule.getActivity().addPager();
+                mPager.setOffscreenPageLimit(2);
+                mPager.setAdapter(new RecyclingAdapter());
+            }
+        });
+        instrumentation.waitForIdleSync();
+        return instrumentation;
+    }
+
+    /**
+     * 逐页前后往返切换,并完成一次measure及layout
+     */
+    private void changePage() {
+        int next = mPager.getCurrentItem() + mDirection;
+        if (next < 0 || next >= PAGE_COUNT) {
+            mDirection = -mDirection;
+            next = mPager.getCurrentItem() + mDirection;
+        }
+        mPager.setCurrentItem(next, false);
+        mPager.measure(View.MeasureSpec.makeMeasureSpec(mPager.getWidth(), View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(mPager.getHeight(), View.MeasureSpec.EXACTLY));
+        mPager.layout(mPager.getLeft(), mPager.getTop(), mPager.getRight(), mPager.getBottom());
+    }
+
+    /**
+     * 复用已销毁的页面View,避免Adapter自身的分配干扰统计
+     */
+    private static class RecyclingAdapter extends PagerAdapter {
+        private final ArrayList<View> mRecycled = new ArrayList<View>();
+
+        @Override
+        public int getCount() {
+            return PAGE_COUNT;
+        }
+
+        @Override
+        public boolean isViewFromObject(@NonNull View view, @NonNull Object object) {
+            return view == object;
+        }
+
+        @NonNull
+        @Override
+        public Object instantiateItem(@NonNull ViewGroup container, int position) {
+            final View view = mRecycled.isEmpty()
+                    ? new View(container.getContext()) : mRecycled.remove(mRecycled.size() - 1);
+            container.addView(view);
+            return view;
+        }
+
+        @Override
+        public void destroyItem(@NonNull ViewGroup container, int position, @NonNull Object object) {
+            container.removeView((View) object);
+            mRecycled.add((View) object);
+        }
+    }
+}
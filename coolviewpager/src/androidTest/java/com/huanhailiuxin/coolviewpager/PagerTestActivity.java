@@ -0,0 +1,36 @@
+package com.huanhailiuxin.coolviewpager;
+
+import android.app.Activity;
+import android.os.Bundle;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+
+/**
+ * 仪器测试中承载CoolViewPager的Activity
+ */
+public class PagerTestActivity extends Activity {
+    private FrameLayout mContainer;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        mContainer = new FrameLayout(this);
+        setContentView(mContainer);
+    }
+
+    /**
+     * 创建一个铺满窗口的CoolViewPager,需在主线程调用
+     *
+     * @return
+     */
+    public CoolViewPager addPager() {
+        final CoolViewPager pager = new CoolViewPager(this);
+        mContainer.addView(pager, new FrameLayout.LayoutParams(
+                ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT));
+        return pager;
+    }
+
+    public FrameLayout getContainer() {
+        return mContainer;
+    }
+}
@@ -0,0 +1,61 @@
+package com.huanhailiuxin.coolviewpager;
+
+import android.support.annotation.NonNull;
+import android.support.v4.view.PagerAdapter;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+/**
+ * 仪器测试使用的PagerAdapter,每页是一个TextView,并统计实例化及销毁的次数
+ */
+public class TestPagerAdapter extends PagerAdapter {
+    private final int mCount;
+    private int mInstantiateCount;
+    private int mDestroyCount;
+
+    public TestPagerAdapter(int count) {
+        this.mCount = count;
+    }
+
+    @Override
+    public int getCount() {
+        return mCount;
+    }
+
+    @Override
+    public boolean isViewFromObject(@NonNull View view, @NonNull Object object) {
+        return view == object;
+    }
+
+    @NonNull
+    @Override
+    public Object instantiateItem(@NonNull ViewGroup container, int position) {
+        mInstantiateCount++;
+        final TextView textView = new TextView(container.getContext());
+        textView.setText(String.valueOf(position));
+        container.addView(textView);
+        return textView;
+    }
+
+    @Override
+    public void destroyItem(@NonNull ViewGroup container, int position, @NonNull Object object) {
+        mDestroyCount++;
+        container.removeView((View) object);
+    }
+
+    public int getInstantiateCount() {
+        return mInstantiateCount;
+    }
+
+    public int getDestroyCount() {
+        return mDestroyCount;
+    }
+
+    /**
+     * @return 已实例化且尚未销毁的页面数
+     */
+    public int getLivePageCount() {
+        return mInstantiateCount - mDestroyCount;
+    }
+}
@@ -0,0 +1,198 @@
+package com.huanhailiuxin.coolviewpager.transformer;
+
+import android.content.Context;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.support.v4.view.ViewPager;
+import android.util.Log;
+import android.view.View;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 内置PageTransformer改为{@link KeyframeTransformer}前后每帧的耗时对比
+ *
+ * <p>
+ * Legacy*为改写前的实现,原样拷贝.模拟一屏三页(前一页、当前页、后一页)从0滑动到-1,
+ * 每帧对三页各调用一次transformPage,取多轮中最快的一轮,结果以{@link #TAG}输出到logcat.
+ * 纵向的Transformer与横向的结构相同,只对比横向的.
+ * </p>
+ */
+@RunWith(AndroidJUnit4.class)
+public class KeyframeTransformerBenchmark {
+    private static final String TAG = "TransformerBenchmark";
+    private static final int FRAMES = 60;
+    private static final int SWEEPS_PER_ROUND = 200;
+    private static final int WARM_UP_ROUNDS = 3;
+    private static final int ROUNDS = 10;
+    //允许的最大耗时比例,只用于发现明显的性能回退,不受设备间的波动影响
+    private static final float MAX_RATIO = 1.5F;
+    private static final int PAGE_WIDTH = 1080;
+    private static final int PAGE_HEIGHT = 1920;
+
+    @Test
+    public void accordion() {
+        compare("Accordion", new LegacyAccordionTransformer(), new AccordionTransformer());
+    }
+
+    @Test
+    public void depthPage() {
+        compare("DepthPage", new LegacyDepthPageTransformer(), new DepthPageTransformer());
+    }
+
+    @Test
+    public void rotateDown() {
+        compare("RotateDown", new LegacyRotateDownTransformer(), new RotateDownTransformer());
+    }
+
+    @Test
+    public void rotate() {
+        compare("Rotate", new LegacyRotateTransformer(), new RotateTransformer());
+    }
+
+    @Test
+    public void zoomIn() {
+        compare("ZoomIn", new LegacyZoomInTransformer(), new ZoomInTransformer());
+    }
+
+    private void compare(String name, ViewPager.PageTransformer legacy, KeyframeTransformer keyframe) {
+        final float legacyNanos = nanosPerFrame(legacy);
+        final float keyframeNanos = nanosPerFrame(keyframe);
+        Log.i(TAG, name + ": legacy " + legacyNanos + " ns/frame, keyframe " + keyframeNanos + " ns/frame");
+        assertTrue(name + ": legacy " + legacyNanos + " ns/frame, keyframe " + keyframeNanos + " ns/frame",
+                keyframeNanos <= legacyNanos * MAX_RATIO);
+    }
+
+    /**
+     * @param transformer
+     * @return 每帧(三页各调用一次transformPage)耗时的纳秒数,取最快的一轮
+     */
+    private static float nanosPerFrame(ViewPager.PageTransformer transformer) {
+        final View[] pages = new View[]{newPage(), newPage(), newPage()};
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < WARM_UP_ROUNDS + ROUNDS; round++) {
+            final long start = System.nanoTime();
+            for (int sweep = 0; sweep < SWEEPS_PER_ROUND; sweep++) {
+                for (int frame = 0; frame < FRAMES; frame++) {
+                    final float offset = (float) frame / FRAMES;
+                    for (int i = 0; i < pages.length; i++) {
+                        transformer.transformPage(pages[i], i - 1 - offset);
+                    }
+                }
+            }
+            final long elapsed = System.nanoTime() - start;
+            if (round >= WARM_UP_ROUNDS) {
+                best = Math.min(best, elapsed);
+            }
+        }
+        return best / (float) (SWEEPS_PER_ROUND * FRAMES);
+    }
+
+    private static View newPage() {
+        final Context context = InstrumentationRegistry.getTargetContext();
+        final View page = new View(context);
+        page.layout(0, 0, PAGE_WIDTH, PAGE_HEIGHT);
+        return page;
+    }
+
+    private static class LegacyAccordionTransformer implements ViewPager.PageTransformer {
+
+        @Override
+        public void transformPage(View page, float position) {
+            if (position < -1 || position > 1) {
+                page.setTranslationX(0F);
+                page.setScaleX(1F);
+            } else {
+                page.setPivotX(position < 0F ? 0F : page.getWidth());
+                page.setScaleX(position < 0F ? 1F + position : 1F - position);
+                page.setTranslationX(page.getWidth() * -position);
+            }
+        }
+    }
+
+    private static class LegacyDepthPageTransformer implements ViewPager.PageTransformer {
+        private static final float MIN_SCALE = 0.75F;
+
+        @Override
+        public void transformPage(View page, float position) {
+            if (position < -1) {
+            } else if (position <= 0) {
+                page.setAlpha(1.0F + position);
+                page.setTranslationX(0F);
+                page.setScaleX(1F);
+                page.setScaleY(1F);
+            } else if (position <= 1) {
+                page.setTranslationX(page.getWidth() * -position);
+                page.setAlpha(1F - position);
+                final float scaleFactor = MIN_SCALE + (1F - MIN_SCALE) * (1F - Math.abs(position));
+                page.setPivotX(page.getWidth() / 2);
+                page.setPivotY(page.getHeight() / 2);
+                page.setScaleX(scaleFactor);
+                page.setScaleY(scaleFactor);
+            } else {
+            }
+        }
+    }
+
+    private static class LegacyRotateDownTransformer implements ViewPager.PageTransformer {
+        private static final float ROT_MOD = -15F;
+
+        @Override
+        public void transformPage(View page, float position) {
+            if (position < -1 || position > 1) {
+                page.setRotation(0F);
+            } else {
+                final float width = page.getWidth();
+                final float height = page.getHeight();
+                final float rotation = ROT_MOD * position * -1.25F;
+                page.setPivotX(width * 0.5F);
+                page.setPivotY(height);
+                page.setRotation(rotation);
+            }
+        }
+    }
+
+    private static class LegacyRotateTransformer implements ViewPager.PageTransformer {
+        private float MAX_ROTATE = 90F;
+
+        @Override
+        public void transformPage(View page, float position) {
+            page.setCameraDistance(10000F);
+            if (position < -1) {
+            } else if (position <= 0) {
+                page.setPivotX(page.getWidth());
+                page.setPivotY(page.getHeight() / 2);
+                page.setRotationY(MAX_ROTATE * position);
+            } else if (position <= 1) {
+                page.setPivotX(0F);
+                page.setPivotY(page.getHeight() / 2);
+                page.setRotationY(MAX_ROTATE * position);
+            } else {
+            }
+        }
+    }
+
+    private static class LegacyZoomInTransformer implements ViewPager.PageTransformer {
+
+        @Override
+        public void transformPage(View page, float position) {
+            if (position <= -1 || position >= 1) {
+                page.setTranslationX(0F);
+                page.setScaleX(1.0F);
+                page.setScaleY(1.0F);
+                page.setAlpha(1.0F);
+            } else {
+                page.setTranslationX(page.getWidth() * -position);
+                final float scale = position < 0 ? position + 1F : Math.abs(1F - position);
+                page.setScaleX(scale);
+                page.setScaleY(scale);
+                page.setPivotX(page.getWidth() * 0.5F);
+                page.setPivotY(page.getHeight() * 0.5F);
+                page.setAlpha(position < -1F || position > 1F ? 0F : 1F - (scale - 1F));
+            }
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.huanhailiuxin.coolviewpager.transformer;
+
+import android.content.Context;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.view.View;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 内置PageTransformer通过{@link PagePropertyWriter}写入属性时实际写入及跳过的次数
+ *
+ * <p>
+ * 当前页从0滑动到-1的过程中(不含两端)按{@link #FRAMES}帧调用transformPage:
+ * 第一帧写入所有属性,之后每一帧只写入随位置变化的属性,其余属性(固定的pivot、cameraDistance等)都被跳过.
+ * </p>
+ */
+@RunWith(AndroidJUnit4.class)
+public class PagePropertyWriterTest {
+    private static final int FRAMES = 60;
+    private static final int PAGE_WIDTH = 1080;
+    private static final int PAGE_HEIGHT = 1920;
+
+    @Test
+    public void accordion() throws Exception {
+        assertCounts(AccordionTransformer.class, 3, 1);
+    }
+
+    @Test
+    public void depthPage() throws Exception {
+        assertCounts(DepthPageTransformer.class, 6, 5);
+    }
+
+    @Test
+    public void rotateDown() throws Exception {
+        assertCounts(RotateDownTransformer.class, 3, 2);
+    }
+
+    @Test
+    public void rotate() throws Exception {
+        assertCounts(RotateTransformer.class, 4, 3);
+    }
+
+    @Test
+    public void zoomIn() throws Exception {
+        assertCounts(ZoomInTransformer.class, 6, 2);
+    }
+
+    @Test
+    public void defaultVertical() throws Exception {
+        assertCounts(DefaultVerticalTransformer.class, 2, 0);
+    }
+
+    @Test
+    public void verticalAccordion() throws Exception {
+        assertCounts(VerticalAccordionTransformer.class, 4, 2);
+    }
+
+    @Test
+    public void verticalDepthPage() throws Exception {
+        assertCounts(VerticalDepthPageTransformer.class, 6, 3);
+    }
+
+    @Test
+    public void verticalRotateDown() throws Exception {
+        assertCounts(VerticalRotateDownTransformer.class, 3, 2);
+    }
+
+    @Test
+    public void verticalRotate() throws Exception {
+        assertCounts(VerticalRotateTransformer.class, 6, 3);
+    }
+
+    @Test
+    public void verticalZoomIn() throws Exception {
+        assertCounts(VerticalZoomInTransformer.class, 6, 2);
+    }
+
+    @Test
+    public void invalidateForcesWrites() {
+        final RotateTransformer transformer = new RotateTransformer();
+        final PagePropertyWriter writer = transformer.getPropertyWriter();
+        final View page = newPage();
+        transformer.transformPage(page, -0.5F);
+        writer.resetCounts();
+        transformer.transformPage(page, -0.5F);
+        assertEquals(0, writer.getWriteCount());
+        assertEquals(4, writer.getSkippedWriteCount());
+
+        PagePropertyWriter.invalidate(page);
+        writer.resetCounts();
+        transformer.transformPage(page, -0.5F);
+        assertEquals(4, writer.getWriteCount());
+        assertEquals(0, writer.getSkippedWriteCount());
+    }
+
+    /**
+     * @param type            内置PageTransformer
+     * @param properties      声明了关键帧的属性数
+     * @param constantInSweep 在(-1,0)内不随位置变化的属性数
+     */
+    private void assertCounts(Class<? extends KeyframeTransformer> type, int properties, int constantInSweep)
+            throws Exception {
+        final KeyframeTransformer transformer = type.newInstance();
+        //参考页面每一帧都清除缓存后全部写入,使用另一个实例,不影响被测实例的计数
+        final KeyframeTransformer reference = type.newInstance();
+        final PagePropertyWriter writer = transformer.getPropertyWriter();
+        final View page = newPage();
+        final View referencePage = newPage();
+        for (int i = 0; i < FRAMES; i++) {
+            //不含0及-1,避免pivot等在0处阶跃的属性多写入一次
+            final float position = -(float) (i + 1) / (FRAMES + 1);
+            transformer.transformPage(page, position);
+            PagePropertyWriter.invalidate(referencePage);
+            reference.transformPage(referencePage, position);
+            //跳过写入后页面的属性仍应与全部写入时相同
+            assertSameProperties(referencePage, page, position);
+        }
+        final long expectedSkips = (long) (FRAMES - 1) * constantInSweep;
+        assertEquals("skipped writes", expectedSkips, writer.getSkippedWriteCount());
+        assertEquals("writes", (long) FRAMES * properties - expectedSkips, writer.getWriteCount());
+    }
+
+    private static void assertSameProperties(View expected, View actual, float position) {
+        final String message = "position " + position;
+        assertEquals(message, expected.getAlpha(), actual.getAlpha(), 0F);
+        assertEquals(message, expected.getTranslationX(), actual.getTranslationX(), 0F);
+        assertEquals(message, expected.getTranslationY(), actual.getTranslationY(), 0F);
+        assertEquals(message, expected.getScaleX(), actual.getScaleX(), 0F);
+        assertEquals(message, expected.getScaleY(), actual.getScaleY(), 0F);
+        assertEquals(message, expected.getRotation(), actual.getRotation(), 0F);
+        assertEquals(message, expected.getRotationX(), actual.getRotationX(), 0F);
+        assertEquals(message, expected.getRotationY(), actual.getRotationY(), 0F);
+        assertEquals(message, expected.getPivotX(), actual.getPivotX(), 0F);
+        assertEquals(message, expected.getPivotY(), actual.getPivotY(), 0F);
+    }
+
+    private static View newPage() {
+        final Context context = InstrumentationRegistry.getTargetContext();
+        final View page = new View(context);
+        page.layout(0, 0, PAGE_WIDTH, PAGE_HEIGHT);
+        return page;
+    }
+}
@@ -0,0 +1,256 @@
+package com.huanhailiuxin.coolviewpager;
+
+import android.content.BroadcastReceiver;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.res.Configuration;
+import android.graphics.Rect;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Message;
+import android.os.PowerManager;
+import android.os.SystemClock;
+import android.support.v4.view.ViewCompat;
+import android.view.Choreographer;
+
+import java.util.ArrayList;
+
+/**
+ * 进程内所有CoolViewPager共用的自动滚动调度器
+ *
+ * <p>
+ * 每个开启自动滚动的CoolViewPager不再各自循环发送延时消息,而是把下一次滚动的时间登记到这里.
+ * 调度器只为最早的时间发送一条消息,到期后在下一帧的Choreographer回调中,
+ * 一次性处理同一帧内到期的所有实例.
+ * 已detach的实例会被移除;完全不在屏幕上的实例跳过本次滚动,等待下一个间隔.
+ * 设置了预热时间的实例,会在滚动前额外唤醒一次,让CoolViewPager提前准备好目标页面.
+ * </p>
+ * <p>
+ * 屏幕开关广播及onTrimMemory回调也在这里统一注册,进程内只注册一次,
+ * attach到窗口的CoolViewPager通过{@link #subscribe(CoolViewPager)}订阅,不再各自注册、注销.
+ * </p>
+ * <p>
+ * 只在主线程中使用.API 16以下没有Choreographer,直接在消息中处理.
+ * </p>
+ */
+final class AutoScrollScheduler {
+    private static final int MSG_WAKE_UP = 1;
+    //到期时间落在同一帧内的实例合并处理
+    private static final long FRAME_COALESCE_MILLIS = 16;
+
+    private static AutoScrollScheduler sInstance;
+
+    private final ArrayList<TimerHandler> mTimers = new ArrayList<>();
+    //分发时的快照,回调中可能登记或取消实例
+    private final ArrayList<TimerHandler> mDispatching = new ArrayList<>();
+    private final Rect mTempRect = new Rect();
+    private long mScheduledWakeUp = Long.MAX_VALUE;
+    private boolean mFrameCallbackPosted;
+
+    private final Handler mHandler = new Handler(Looper.getMainLooper()) {
+        @Override
+        public void handleMessage(Message msg) {
+            if (msg.what == MSG_WAKE_UP) {
+                onWakeUp();
+            }
+        }
+    };
+
+    private Choreographer.FrameCallback mFrameCallback;
+
+    //订阅屏幕开关及内存回调的实例
+    private final ArrayList<CoolViewPager> mSubscribers = new ArrayList<>();
+    //通知时的快照,回调中可能订阅或取消订阅
+    private final ArrayList<CoolViewPager> mNotifying = new ArrayList<>();
+    private boolean mSystemCallbacksRegistered;
+    private boolean mScreenOn = true;
+
+    static AutoScrollScheduler getInstance() {
+        if (sInstance == null) {
+            sInstance = new AutoScrollScheduler();
+        }
+        return sInstance;
+    }
+
+    private AutoScrollScheduler() {
+    }
+
+    /**
+     * 登记或更新实例的下一次滚动时间{@link TimerHandler#nextTickTime}
+     *
+     * @param timer
+     */
+    void schedule(TimerHandler timer) {
+        if (!mTimers.contains(timer)) {
+            mTimers.add(timer);
+        }
+        updateWakeUp();
+    }
+
+    void cancel(TimerHandler timer) {
+        mTimers.remove(timer);
+        if (mTimers.isEmpty()) {
+            mHandler.removeMessages(MSG_WAKE_UP);
+            mScheduledWakeUp = Long.MAX_VALUE;
+        }
+    }
+
+    /**
+     * 只为最早到期的实例保留一条消息
+     */
+    private void updateWakeUp() {
+        long earliest = Long.MAX_VALUE;
+        for (int i = 0; i < mTimers.size(); i++) {
+            earliest = Math.min(earliest, mTimers.get(i).getWakeUpTime());
+        }
+        if (earliest == Long.MAX_VALUE || mFrameCallbackPosted) {
+            //帧回调中处理完后会重新计算
+            return;
+        }
+        if (earliest < mScheduledWakeUp || !mHandler.hasMessages(MSG_WAKE_UP)) {
+            mHandler.removeMessages(MSG_WAKE_UP);
+            mScheduledWakeUp = earliest;
+            mHandler.sendEmptyMessageAtTime(MSG_WAKE_UP, earliest);
+        }
+    }
+
+    /**
+     * 订阅屏幕开关及内存回调,首次订阅时向Application注册广播及回调,之后不再注销
+     *
+     * @param pager
+     */
+    void subscribe(CoolViewPager pager) {
+        if (!mSystemCallbacksRegistered) {
+            registerSystemCallbacks(pager.getContext().getApplicationContext());
+        }
+        if (!mSubscribers.contains(pager)) {
+            mSubscribers.add(pager);
+        }
+    }
+
+    void unsubscribe(CoolViewPager pager) {
+        mSubscribers.remove(pager);
+    }
+
+    /**
+     * @return 屏幕是否点亮,尚无实例订阅时为true
+     */
+    boolean isScreenOn() {
+        return mScreenOn;
+    }
+
+    private void registerSystemCallbacks(Context context) {
+        mSystemCallbacksRegistered = true;
+        final IntentFilter screenFilter = new IntentFilter(Intent.ACTION_SCREEN_OFF);
+        screenFilter.addAction(Intent.ACTION_SCREEN_ON);
+        context.registerReceiver(new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                final boolean screenOn = !Intent.ACTION_SCREEN_OFF.equals(intent.getAction());
+                if (mScreenOn != screenOn) {
+                    mScreenOn = screenOn;
+                    notifySubscribers(false, 0);
+                }
+            }
+        }, screenFilter);
+        context.registerComponentCallbacks(new ComponentCallbacks2() {
+            @Override
+            public void onTrimMemory(int level) {
+                notifySubscribers(true, level);
+            }
+
+            @Override
+            public void onConfigurationChanged(Configuration newConfig) {
+            }
+
+            @Override
+            public void onLowMemory() {
+                notifySubscribers(true, ComponentCallbacks2.TRIM_MEMORY_COMPLETE);
+            }
+        });
+        final PowerManager pm = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+        if (pm != null) {
+            mScreenOn = Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT_WATCH ? pm.isInteractive() : pm.isScreenOn();
+        }
+    }
+
+    /**
+     * @param memory    true为内存回调,false为屏幕开关
+     * @param trimLevel 内存回调的等级
+     */
+    private void notifySubscribers(boolean memory, int trimLevel) {
+        mNotifying.clear();
+        mNotifying.addAll(mSubscribers);
+        for (int i = 0; i < mNotifying.size(); i++) {
+            final CoolViewPager pager = mNotifying.get(i);
+            if (!mSubscribers.contains(pager)) {
+                continue;
+            }
+            if (memory) {
+                pager.onMemoryLevelChanged(trimLevel);
+            } else {
+                pager.onScreenInteractiveChanged();
+            }
+        }
+        mNotifying.clear();
+    }
+
+    private void onWakeUp() {
+        mScheduledWakeUp = Long.MAX_VALUE;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            if (mFrameCallback == null) {
+                mFrameCallback = new Choreographer.FrameCallback() {
+                    @Override
+                    public void doFrame(long frameTimeNanos) {
+                        mFrameCallbackPosted = false;
+                        dispatchTicks(SystemClock.uptimeMillis());
+                    }
+                };
+            }
+            if (!mFrameCallbackPosted) {
+                mFrameCallbackPosted = true;
+                Choreographer.getInstance().postFrameCallback(mFrameCallback);
+            }
+        } else {
+            dispatchTicks(SystemClock.uptimeMillis());
+        }
+    }
+
+    private void dispatchTicks(long now) {
+        mDispatching.clear();
+        mDispatching.addAll(mTimers);
+        for (int i = 0; i < mDispatching.size(); i++) {
+            final TimerHandler timer = mDispatching.get(i);
+            if (timer.isStopped || !mTimers.contains(timer)) {
+                continue;
+            }
+            final boolean tickDue = timer.nextTickTime <= now + FRAME_COALESCE_MILLIS;
+            if (!tickDue && timer.getWakeUpTime() > now + FRAME_COALESCE_MILLIS) {
+                continue;
+            }
+            final CoolViewPager pager = timer.coolViewPager;
+            if (pager == null || !ViewCompat.isAttachedToWindow(pager)) {
+                //标记为已停止,重新attach后会重新登记
+                mTimers.remove(timer);
+                timer.isStopped = true;
+                timer.remaining = -1;
+            } else if (!pager.getGlobalVisibleRect(mTempRect)) {
+                //不在屏幕上,跳过本次预热及滚动
+                if (tickDue) {
+                    timer.tick();
+                } else {
+                    timer.prewarmed = true;
+                }
+            } else if (tickDue) {
+                timer.onTick();
+            } else {
+                timer.onPrewarm();
+            }
+        }
+        mDispatching.clear();
+        updateWakeUp();
+    }
+}
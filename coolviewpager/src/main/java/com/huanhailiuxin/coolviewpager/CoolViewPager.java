@@ -1,5 +1,7 @@
 package com.huanhailiuxin.coolviewpager;
 
+import android.app.ActivityManager;
+import android.content.ComponentCallbacks2;
 import android.content.Context;
 import android.content.res.Resources;
 import android.content.res.TypedArray;
@@ -7,6 +9,7 @@ import android.database.DataSetObserver;
 import android.graphics.Canvas;
 import android.graphics.Rect;
 import android.graphics.drawable.Drawable;
+import android.os.Build;
 import android.os.Bundle;
 import android.os.Parcel;
 import android.os.Parcelable;
@@ -17,7 +20,10 @@ import android.support.annotation.DrawableRes;
 import android.support.annotation.Keep;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
+import android.support.annotation.RequiresApi;
+import android.support.annotation.VisibleForTesting;
 import android.support.v4.content.ContextCompat;
+import android.support.v4.util.Pools;
 import android.support.v4.view.AbsSavedState;
 import android.support.v4.view.AccessibilityDelegateCompat;
 import android.support.v4.view.PagerAdapter;
@@ -29,6 +35,9 @@ import android.support.v4.view.accessibility.AccessibilityEventCompat;
 import android.support.v4.view.accessibility.AccessibilityNodeInfoCompat;
 import android.util.AttributeSet;
 import android.util.Log;
+import android.util.SparseArray;
+import android.view.Choreographer;
+import android.view.Display;
 import android.view.FocusFinder;
 import android.view.Gravity;
 import android.view.KeyEvent;
@@ -44,9 +53,13 @@ import android.view.animation.Interpolator;
 import android.widget.EdgeEffect;
 import android.widget.Scroller;
 
+import com.huanhailiuxin.coolviewpager.adapter.AsyncPagerAdapter;
+import com.huanhailiuxin.coolviewpager.adapter.DwellTimePagerAdapter;
 import com.huanhailiuxin.coolviewpager.adapter.LoopPagerAdapterWrapper;
 import com.huanhailiuxin.coolviewpager.adapter.PagerAdapterWrapper;
+import com.huanhailiuxin.coolviewpager.adapter.StableIdPagerAdapter;
 import com.huanhailiuxin.coolviewpager.transformer.DefaultVerticalTransformer;
+import com.huanhailiuxin.coolviewpager.transformer.PagePropertyWriter;
 
 import java.lang.annotation.ElementType;
 import java.lang.annotation.Inherited;
@@ -77,11 +90,17 @@ import java.util.List;
 @Keep
 public class CoolViewPager extends ViewGroup implements ICoolViewPagerFeature {
     private static final String TAG = "ViewPager";
-    private static final boolean DEBUG = true;
+    /**
+     * 调试日志开关,默认关闭,可通过{@code adb shell setprop log.tag.ViewPager VERBOSE}后重启进程开启.
+     * populate、measure、layout每次都会拼接日志字符串,开启后会产生大量内存分配
+     */
+    static boolean sDebug = Log.isLoggable(TAG, Log.VERBOSE);
 
     private static final boolean USE_CACHE = false;
 
     private static final int DEFAULT_OFFSCREEN_PAGES = 1;
+    //ItemInfo对象池大小,页面移出缓存窗口后ItemInfo回收到池中,新页面进入时复用
+    private static final int ITEM_INFO_POOL_SIZE = 16;
     private static final int MAX_SETTLE_DURATION = 600; // ms
     private static final int MIN_DISTANCE_FOR_FLING = 25; // dips
 
@@ -111,6 +130,18 @@ public class CoolViewPager extends ViewGroup implements ICoolViewPagerFeature {
         float widthFactor;
         //偏移量，页面移动的偏移量，默认是0,用来乘页面面的宽度，可以算出实际的偏移量
         float offset;
+        //与object对应的页面View,首次通过isViewFromObject匹配成功后缓存,同时记录在该View的LayoutParams中
+        View child;
+        //是否已放回对象池,防止同一个ItemInfo被重复回收后被两个页面同时复用
+        boolean recycled;
+
+        void copyFrom(ItemInfo other) {
+            object = other.object;
+            position = other.position;
+            scrolling = other.scrolling;
+            widthFactor = other.widthFactor;
+            offset = other.offset;
+        }
     }
 
     //页面排序，倒序
@@ -132,13 +163,22 @@ public class CoolViewPager extends ViewGroup implements ICoolViewPagerFeature {
 
     //已经缓存的页面，这个数量由 mOffscreenPageLimit来决定的
     private final ArrayList<ItemInfo> mItems = new ArrayList<ItemInfo>();
+    //mItems按position建立的索引,使infoForPosition为O(1)
+    private final SparseArray<ItemInfo> mItemsByPosition = new SparseArray<ItemInfo>();
+    //ItemInfo对象池,避免每个进入缓存窗口的页面都new一个ItemInfo
+    private final Pools.SimplePool<ItemInfo> mItemInfoPool = new Pools.SimplePool<ItemInfo>(ITEM_INFO_POOL_SIZE);
+    //对象池为空时新建的ItemInfo个数
+    private int mItemInfoAllocations;
     private final CoolViewPager.ItemInfo mTempItem = new CoolViewPager.ItemInfo();
+    //populate时保存旧的当前页信息,旧的当前页可能在populate中被移除并回收复用
+    private final CoolViewPager.ItemInfo mOldCurItem = new CoolViewPager.ItemInfo();
 
     private final Rect mTempRect = new Rect();
 
     PagerAdapter mAdapter;
     int mCurItem;   // Index of currently displayed page.
     private int mRestoredCurItem = -1;
+    private long mRestoredCurItemId = StableIdPagerAdapter.NO_ID;
     private Parcelable mRestoredAdapterState = null;
     private ClassLoader mRestoredClassLoader = null;
 
@@ -166,7 +206,43 @@ public class CoolViewPager extends ViewGroup implements ICoolViewPagerFeature {
     private boolean mScrollingCacheEnabled;
 
     private boolean mPopulatePending;
+    //滑动方向前方保留的页面数
     private int mOffscreenPageLimit = DEFAULT_OFFSCREEN_PAGES;
+    //滑动方向后方保留的页面数,可以为0
+    private int mOffscreenPageLimitBehind = DEFAULT_OFFSCREEN_PAGES;
+    //为true时,"前方"跟随自动滚动方向或最近一次滑动方向;为false时"前方"固定为position增大的方向
+    private boolean mOffscreenPageLimitFollowDirection;
+    //最近一次平滑滚动的方向是否为position增大的方向
+    private boolean mLastScrollForward = true;
+    //后方页面数为0时,拖动期间临时保留后方1页,保证可以向后拖动
+    private boolean mHoldBehindPage;
+    //根据内存状况调整后,populate实际使用的前方/后方页面数
+    private int mEffectiveAheadLimit = DEFAULT_OFFSCREEN_PAGES;
+    private int mEffectiveBehindLimit = DEFAULT_OFFSCREEN_PAGES;
+    private PageWindowPolicy mPageWindowPolicy = DEFAULT_PAGE_WINDOW_POLICY;
+    //最多同时存活的页面数(含当前页),<=0表示不限制
+    private int mMaxAlivePages = 0;
+    //收到过的最严重的onTrimMemory等级,内存恢复后重置为0
+    private int mTrimMemoryLevel = 0;
+    //内存紧张后,至少经过该时长才尝试恢复页面窗口
+    private static final long MEMORY_RECOVER_DELAY = 10 * 1000; // ms
+    //一次自动滚动动画中丢帧数占比超过该值时视为卡顿
+    private static final float JANK_FRAME_RATIO = 0.2f;
+    //连续卡顿的自动滚动次数达到该值时降级一次
+    private static final int JANKY_SETTLES_TO_DEGRADE = 2;
+    private static final int DEGRADE_LEVEL_TRANSFORMER = 1;
+    private static final int DEGRADE_LEVEL_DURATION = 2;
+    private static final int DEGRADE_LEVEL_INTERVAL = 3;
+    private static final float DEGRADED_DURATION_SCALE = 1.5f;
+    private static final float DEGRADED_INTERVAL_SCALE = 2f;
+    //跑马灯模式默认每秒滚动的距离
+    private static final int DEFAULT_MARQUEE_SPEED = 48; // dp
+    //预热的页面内容未准备好时,每隔一帧检查一次
+    private static final long PREWARM_RETRY_DELAY = 16; // ms
+    //页面宽度前缀和索引,为null时calculatePageOffsets按原逻辑逐页累加
+    private PageOffsetIndex mPageOffsetIndex;
+    //mPageOffsetIndex是否由VIRTUAL_COUNT循环模式自动创建,离开该模式时随之移除
+    private boolean mPageOffsetIndexAuto;
 
     private boolean mIsBeingDragged;
     private boolean mIsUnableToDrag;
@@ -422,6 +498,29 @@ public class CoolViewPager extends ViewGroup implements ICoolViewPagerFeature {
         }
     }
 
+    /**
+     * 循环滚动方式枚举类
+     * GHOST_PAGE:首尾各添加一个辅助页,滑动到辅助页后跳转到对应的真实页面;
+     * VIRTUAL_COUNT:报告一个很大的页面数,通过取模映射到真实页面,从中间开始滚动
+     */
+    public enum LoopMode {
+        GHOST_PAGE(0), VIRTUAL_COUNT(1);
+        int id;
+
+        LoopMode(int id) {
+            this.id = id;
+        }
+
+        static LoopMode getLoopMode(int id) {
+            for (LoopMode loopMode : values()) {
+                if (loopMode.id == id) {
+                    return loopMode;
+                }
+            }
+            throw new IllegalArgumentException("Unknown loop mode id: " + id);
+        }
+    }
+
     private TimerHandler.TimerHandlerListener mTimerHandlerListener = new TimerHandler.TimerHandlerListener() {
         @Override
         public void callBack() {
@@ -433,8 +532,63 @@ public class CoolViewPager extends ViewGroup implements ICoolViewPagerFeature {
     private int mIntervalInMillis = 2000;
     private AutoScrollDirection mAutoScrollDirection = AutoScrollDirection.FORWARD;
     private TimerHandler timer;
+    //以下状态任一不满足时暂停自动滚动,恢复后继续暂停前剩余的等待时间
+    private boolean mAttachedToWindow;
+    private boolean mTemporarilyDetached;
+    private boolean mWindowVisible = true;
+    private boolean mHasWindowFocus = true;
+    //手指是否按在CoolViewPager上
+    private boolean mTouching;
+    //手指抬起后,等待滑动结束再恢复自动滚动
+    private boolean mResumeAutoScrollAfterSettle;
+    //用户操作结束(滑动停止)后到下一次自动滚动的间隔,<0表示使用mIntervalInMillis
+    private int mAutoScrollResumeDelay = -1;
+    //自动滚动前多久预热目标页面,<=0表示不预热
+    private int mAutoScrollPrewarmTime = 0;
+    //预热中的自动滚动目标页,populate时保留在缓存窗口内,-1表示没有
+    private int mPrewarmItem = -1;
+    //目标页面内容未准备好时,最多将自动滚动推迟到这个时间
+    private long mPrewarmDeadline;
+    //跑马灯模式:自动滚动时在每一帧匀速滚动,而不是逐页滚动
+    private boolean mMarquee = false;
+    private int mMarqueeSpeedDp = DEFAULT_MARQUEE_SPEED;
+    //每秒滚动的像素数
+    private float mMarqueeSpeed;
+    private boolean mMarqueeRunning;
+    //跑马灯开始或恢复滚动的时间(SystemClock.uptimeMillis)
+    private long mMarqueeStartTime;
+    private long mMarqueeLastFrameNanos;
+    //不足一个像素的滚动距离,累加到下一帧
+    private float mMarqueeRemainder;
+    private Choreographer.FrameCallback mMarqueeFrameCallback;
     private boolean mInfiniteLoop = false;
+    private LoopMode mLoopMode = LoopMode.GHOST_PAGE;
+    private boolean mSnapshotGhostPages = false;
+    //无缝循环:滑动进入首尾辅助页时原地平移页面位置及滚动坐标,而不是在IDLE时setCurrentItem
+    private boolean mSeamlessLoop = false;
+    private boolean mRebasingLoop;
+    //无缝循环平移滚动坐标时,mScroller尚未结束的动画需要叠加的偏移量
+    private int mScrollerShift;
     private int mScrollDuration = 0;
+    //根据自动滚动动画的丢帧情况逐级降级
+    private boolean mFrameBudgetAware = false;
+    private FrameBudgetMonitor mFrameBudgetMonitor;
+    //当前的滑动是否由自动滚动发起
+    private boolean mAutoScrollSettling;
+    private int mJankySettleCount;
+    //已降级的等级:1切换为低开销的PageTransformer,2延长自动滚动动画时长,3延长自动滚动间隔
+    private int mDegradeLevel;
+    private ViewPager.PageTransformer mFallbackPageTransformer;
+    private boolean mHasFallbackPageTransformer;
+    //降级前使用的PageTransformer及其绘制顺序,恢复时使用
+    private ViewPager.PageTransformer mDegradedPageTransformer;
+    private boolean mDegradedReverseDrawingOrder;
+    //降级时实际切换成的PageTransformer,用户之后自行设置过则不再恢复
+    private ViewPager.PageTransformer mAppliedFallbackTransformer;
+    private float mAutoScrollDurationScale = 1f;
+    //页面离开可见范围时只以边界位置执行一次PageTransformer,之后不再调用,直到重新进入可见范围
+    private boolean mCullPageTransforms = true;
+    private float mAutoScrollIntervalScale = 1f;
     private boolean mDrawEdgeEffect = true;
     private @ColorInt
     int mEdgeEffectColor = -Integer.MAX_VALUE;
@@ -463,6 +617,8 @@ public class CoolViewPager extends ViewGroup implements ICoolViewPagerFeature {
             stopTimer();
             timer = null;
         } else {
+            //替换前先取消旧实例的调度
+            stopTimer();
             timer = new TimerHandler(this, mTimerHandlerListener, this.mIntervalInMillis);
             checkAndStartTimer();
         }
@@ -481,6 +637,61 @@ public class CoolViewPager extends ViewGroup implements ICoolViewPagerFeature {
         return this.mIntervalInMillis;
     }
 
+    /**
+     * 设置用户触摸操作结束、页面停止滑动后,到下一次自动滚动的时间间隔.
+     * 小于0时使用自动滚动的时间间隔
+     *
+     * @param delayInMillis
+     */
+    public void setAutoScrollResumeDelay(int delayInMillis) {
+        this.mAutoScrollResumeDelay = delayInMillis;
+    }
+
+    public int getAutoScrollResumeDelay() {
+        return this.mAutoScrollResumeDelay;
+    }
+
+    /**
+     * 设置在每次自动滚动前多久预热目标页面:实例化并布局目标页面,使滚动动画开始时页面已经准备好.
+     * Adapter为{@link AsyncPagerAdapter}时,到期后页面内容仍未准备好,会再等待最多相同的时间.
+     * 小于等于0时不预热
+     *
+     * @param prewarmTimeInMillis
+     */
+    public void setAutoScrollPrewarmTime(int prewarmTimeInMillis) {
+        this.mAutoScrollPrewarmTime = prewarmTimeInMillis;
+        if (timer != null) {
+            timer.prewarmLead = prewarmTimeInMillis;
+        }
+    }
+
+    public int getAutoScrollPrewarmTime() {
+        return this.mAutoScrollPrewarmTime;
+    }
+
+    @Override
+    public void setMarquee(boolean marquee, int... speedInDpPerSecond) {
+        if (speedInDpPerSecond.length > 0 && speedInDpPerSecond[0] > 0) {
+            this.mMarqueeSpeedDp = speedInDpPerSecond[0];
+        }
+        this.mMarqueeSpeed = this.mMarqueeSpeedDp * getResources().getDisplayMetrics().density;
+        //跑马灯依赖Choreographer,API 16以下仍逐页滚动
+        final boolean newMarquee = marquee && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN;
+        if (this.mMarquee != newMarquee) {
+            stopTimer();
+            this.mMarquee = newMarquee;
+            checkAndStartTimer();
+        }
+    }
+
+    public boolean isMarquee() {
+        return this.mMarquee;
+    }
+
+    public int getMarqueeSpeed() {
+        return this.mMarqueeSpeedDp;
+    }
+
     @Override
     public void setAutoScrollDirection(AutoScrollDirection autoScrollDirection) {
         this.mAutoScrollDirection = autoScrollDirection;
@@ -500,9 +711,19 @@ public class CoolViewPager extends ViewGroup implements ICoolViewPagerFeature {
 
     @Override
     public void autoScrollNextPage() {
+        //用户正在触摸或页面仍在滑动时不自动滚动,避免与用户操作争抢
+        if (mTouching || mScrollState != SCROLL_STATE_IDLE) {
+            return;
+        }
         if (this.mAutoScroll && this.mAdapter != null && this.mAdapter.getCount() > 1) {
             int nextItem = getAutoScrollNextItem();
+            mAutoScrollSettling = true;
             setCurrentItem(nextItem, true);
+            if (mScrollState == SCROLL_STATE_SETTLING) {
+                startFrameBudgetMonitor();
+            } else {
+                mAutoScrollSettling = false;
+            }
         }
     }
 
@@ -529,6 +750,46 @@ public class CoolViewPager extends ViewGroup implements ICoolViewPagerFeature {
         return this.mInfiniteLoop;
     }
 
+    @Override
+    public void setLoopMode(LoopMode loopMode) {
+        if (this.mLoopMode != loopMode) {
+            this.mLoopMode = loopMode;
+            if (this.mAdapter instanceof LoopPagerAdapterWrapper) {
+                setAdapter(((LoopPagerAdapterWrapper) this.mAdapter).getRealAdapter());
+            }
+        }
+    }
+
+    public LoopMode getLoopMode() {
+        return this.mLoopMode;
+    }
+
+    /**
+     * 设置循环滚动时,辅助页对应的真实页面已存在的情况下,是否使用真实页面的快照绘制辅助页,
+     * 而不是通过Adapter再实例化一份页面
+     *
+     * @param snapshotGhostPages
+     */
+    public void setSnapshotGhostPages(boolean snapshotGhostPages) {
+        this.mSnapshotGhostPages = snapshotGhostPages;
+        if (this.mAdapter instanceof LoopPagerAdapterWrapper) {
+            ((LoopPagerAdapterWrapper) this.mAdapter).setSnapshotGhostPages(snapshotGhostPages);
+        }
+    }
+
+    public boolean isSnapshotGhostPages() {
+        return this.mSnapshotGhostPages;
+    }
+
+    @Override
+    public void setSeamlessLoop(boolean seamlessLoop) {
+        this.mSeamlessLoop = seamlessLoop;
+    }
+
+    public boolean isSeamlessLoop() {
+        return this.mSeamlessLoop;
+    }
+
     @Override
     public void setScrollDuration(boolean ifSetScrollDuration, int... scrollDuration) {
         if ((!ifSetScrollDuration) || scrollDuration == null || scrollDuration.length <= 0 || scrollDuration[0] <= 0) {
@@ -546,6 +807,172 @@ public class CoolViewPager extends ViewGroup implements ICoolViewPagerFeature {
         return this.mScrollDuration > 0;
     }
 
+    /**
+     * 设置是否统计每次自动滚动动画的丢帧情况,并在连续卡顿时逐级降级:
+     * 1:将PageTransformer切换为低开销的版本,见{@link #setFallbackPageTransformer(ViewPager.PageTransformer)};
+     * 2:延长自动滚动的动画时长;
+     * 3:延长自动滚动的时间间隔.
+     * API 16以下不支持.关闭时恢复到降级前的状态
+     *
+     * @param frameBudgetAware
+     */
+    public void setFrameBudgetAware(boolean frameBudgetAware) {
+        this.mFrameBudgetAware = frameBudgetAware && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN;
+        if (!this.mFrameBudgetAware) {
+            if (mFrameBudgetMonitor != null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+                mFrameBudgetMonitor.stop();
+            }
+            resetFrameBudgetDegradation();
+        }
+    }
+
+    public boolean isFrameBudgetAware() {
+        return this.mFrameBudgetAware;
+    }
+
+    /**
+     * 设置降级时切换成的PageTransformer.
+     * 未设置时,水平模式下去掉PageTransformer,竖直模式下使用{@link DefaultVerticalTransformer}
+     *
+     * @param transformer
+     */
+    public void setFallbackPageTransformer(@Nullable ViewPager.PageTransformer transformer) {
+        this.mFallbackPageTransformer = transformer;
+        this.mHasFallbackPageTransformer = true;
+    }
+
+    /**
+     * @return 当前已降级的等级,0表示没有降级
+     */
+    public int getFrameBudgetDegradeLevel() {
+        return this.mDegradeLevel;
+    }
+
+    /**
+     * 恢复到降级前的状态,重新开始统计
+     */
+    public void resetFrameBudgetDegradation() {
+        if (mDegradedPageTransformer != null && mPageTransformer == mAppliedFallbackTransformer) {
+            swapPageTransformer(mDegradedReverseDrawingOrder, mDegradedPageTransformer);
+        }
+        mDegradedPageTransformer = null;
+        mAppliedFallbackTransformer = null;
+        mDegradeLevel = 0;
+        mJankySettleCount = 0;
+        mAutoScrollDurationScale = 1f;
+        if (mAutoScrollIntervalScale != 1f) {
+            mAutoScrollIntervalScale = 1f;
+            updateDwellTime(mCurItem);
+        }
+    }
+
+    /**
+     * 自动滚动发起的滑动开始时开始统计帧数
+     */
+    private void startFrameBudgetMonitor() {
+        //帧统计依赖API 16的Choreographer
+        if (!mFrameBudgetAware || Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN) {
+            return;
+        }
+        if (mFrameBudgetMonitor == null) {
+            mFrameBudgetMonitor = new FrameBudgetMonitor();
+        }
+        float refreshRate = 60f;
+        final Display display = ViewCompat.getDisplay(this);
+        if (display != null && display.getRefreshRate() >= 1f) {
+            refreshRate = display.getRefreshRate();
+        }
+        mFrameBudgetMonitor.start((long) (1000000000L / refreshRate));
+    }
+
+    /**
+     * 自动滚动发起的滑动结束时统计丢帧情况
+     *
+     * @param completed 滑动是否正常结束,被用户打断时丢弃本次统计
+     */
+    private void stopFrameBudgetMonitor(boolean completed) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN
+                || mFrameBudgetMonitor == null || !mFrameBudgetMonitor.isRunning()) {
+            return;
+        }
+        mFrameBudgetMonitor.stop();
+        if (!completed) {
+            return;
+        }
+        final int frames = mFrameBudgetMonitor.getFrames();
+        final int dropped = mFrameBudgetMonitor.getDroppedFrames();
+        if (frames + dropped == 0) {
+            return;
+        }
+        if (dropped > (frames + dropped) * JANK_FRAME_RATIO) {
+            mJankySettleCount++;
+            if (mJankySettleCount >= JANKY_SETTLES_TO_DEGRADE) {
+                mJankySettleCount = 0;
+                degrade();
+            }
+        } else {
+            mJankySettleCount = 0;
+        }
+    }
+
+    /**
+     * 降级一次,当前等级无事可做(例如没有PageTransformer)时继续降到下一级
+     */
+    private void degrade() {
+        while (mDegradeLevel < DEGRADE_LEVEL_INTERVAL) {
+            mDegradeLevel++;
+            switch (mDegradeLevel) {
+                case DEGRADE_LEVEL_TRANSFORMER:
+                    final ViewPager.PageTransformer fallback = mHasFallbackPageTransformer ? mFallbackPageTransformer
+                            : (mScrollMode == ScrollMode.VERTICAL ? new DefaultVerticalTransformer() : null);
+                    if (mPageTransformer == null || mPageTransformer == fallback
+                            || (!mHasFallbackPageTransformer && mPageTransformer instanceof DefaultVerticalTransformer)) {
+                        continue;
+                    }
+                    mDegradedPageTransformer = mPageTransformer;
+                    mDegradedReverseDrawingOrder = mDrawingOrder == DRAW_ORDER_REVERSE;
+                    mAppliedFallbackTransformer = fallback;
+                    swapPageTransformer(mDegradedReverseDrawingOrder, fallback);
+                    return;
+                case DEGRADE_LEVEL_DURATION:
+                    mAutoScrollDurationScale = DEGRADED_DURATION_SCALE;
+                    return;
+                case DEGRADE_LEVEL_INTERVAL:
+                    mAutoScrollIntervalScale = DEGRADED_INTERVAL_SCALE;
+                    updateDwellTime(mCurItem);
+                    return;
+                default:
+                    return;
+            }
+        }
+    }
+
+    /**
+     * 更换PageTransformer,先清除旧PageTransformer在页面上留下的属性,再立即以新PageTransformer变换一次
+     *
+     * @param reverseDrawingOrder
+     * @param transformer
+     */
+    private void swapPageTransformer(boolean reverseDrawingOrder, @Nullable ViewPager.PageTransformer transformer) {
+        for (int i = 0; i < getChildCount(); i++) {
+            final View child = getChildAt(i);
+            if (((CoolViewPager.LayoutParams) child.getLayoutParams()).isDecor) {
+                continue;
+            }
+            child.setAlpha(1f);
+            child.setTranslationX(0f);
+            child.setTranslationY(0f);
+            child.setRotation(0f);
+            child.setRotationX(0f);
+            child.setRotationY(0f);
+            child.setScaleX(1f);
+            child.setScaleY(1f);
+            PagePropertyWriter.invalidate(child);
+        }
+        setPageTransformer(reverseDrawingOrder, transformer, mPageTransformerLayerType);
+        transformPages();
+    }
+
     @Override
     public void setDrawEdgeEffect(boolean drawEdgeEffect) {
         this.mDrawEdgeEffect = drawEdgeEffect;
@@ -561,33 +988,277 @@ public class CoolViewPager extends ViewGroup implements ICoolViewPagerFeature {
     }
 
     /**
-     * 如果设置了Adapter,且Adapter中项数大于1,且开启了自动滚动,开启循环滚动
+     * 如果设置了Adapter,且Adapter中项数大于1,且开启了自动滚动,且当前可以自动滚动,开启循环滚动
      */
     private void checkAndStartTimer() {
-        if (this.mAdapter != null && this.mAdapter.getCount() > 1 && this.mAutoScroll) {
+        if (this.mAdapter != null && this.mAdapter.getCount() > 1 && this.mAutoScroll && isAutoScrollAllowed()) {
             startTimer();
         }
     }
 
+    /**
+     * 已attach到窗口、自身及父View可见、窗口可见且没有失去焦点、屏幕点亮时才自动滚动
+     *
+     * @return
+     */
+    private boolean isAutoScrollAllowed() {
+        return mAttachedToWindow && !mTemporarilyDetached && mWindowVisible && mHasWindowFocus
+                && AutoScrollScheduler.getInstance().isScreenOn() && isShown();
+    }
+
+    /**
+     * 可见性、窗口焦点、屏幕状态等变化后,暂停或继续自动滚动
+     */
+    private void updateTimerState() {
+        if (isAutoScrollAllowed()) {
+            checkAndStartTimer();
+        } else {
+            pauseTimer();
+        }
+    }
+
     private void startTimer() {
         if (timer == null || !timer.isStopped) {
             return;
         }
         timer.listener = mTimerHandlerListener;
-        timer.removeCallbacksAndMessages(null);
-        timer.tick();
+        timer.cancel();
+        if (mMarquee && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            //跑马灯模式不按间隔回调,由帧回调匀速滚动;暂停时剩余的时间作为恢复前的等待时间
+            startMarquee(Math.max(0, timer.remaining));
+            timer.remaining = -1;
+            timer.isStopped = false;
+            return;
+        }
+        timer.prewarmLead = mAutoScrollPrewarmTime;
+        updateDwellTime(mCurItem);
+        if (timer.remaining >= 0) {
+            //从暂停中恢复,只等待剩余的时间
+            timer.tick(timer.remaining);
+            timer.remaining = -1;
+        } else {
+            timer.tick();
+        }
         timer.isStopped = false;
     }
 
+    /**
+     * 页面被选中时读取一次该页的停留时间,作为到下一次自动滚动的间隔
+     *
+     * @param position
+     */
+    private void updateDwellTime(int position) {
+        if (timer == null) {
+            return;
+        }
+        long dwellTime = DwellTimePagerAdapter.DEFAULT_DWELL_TIME;
+        if (mAdapter instanceof PagerAdapterWrapper) {
+            dwellTime = ((PagerAdapterWrapper) mAdapter).getDwellTime(position);
+        } else if (mAdapter instanceof LoopPagerAdapterWrapper) {
+            dwellTime = ((LoopPagerAdapterWrapper) mAdapter).getDwellTime(position);
+        }
+        timer.interval = (long) ((dwellTime > 0 ? dwellTime : mIntervalInMillis) * mAutoScrollIntervalScale);
+    }
+
     private void stopTimer() {
+        mPrewarmItem = -1;
+        if (timer == null) {
+            return;
+        }
+        timer.remaining = -1;
+        if (timer.isStopped) {
+            return;
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            stopMarquee();
+        }
+        timer.cancel();
+        timer.listener = null;
+        timer.isStopped = true;
+    }
+
+    /**
+     * 暂停自动滚动,并记录距离下一次滚动剩余的时间
+     */
+    private void pauseTimer() {
+        mPrewarmItem = -1;
         if (timer == null || timer.isStopped) {
             return;
         }
-        timer.removeCallbacksAndMessages(null);
+        if (mMarqueeRunning && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            stopMarquee();
+            timer.remaining = -1;
+        } else {
+            timer.remaining = Math.max(0, timer.nextTickTime - SystemClock.uptimeMillis());
+        }
+        timer.cancel();
         timer.listener = null;
         timer.isStopped = true;
     }
 
+    /**
+     * @return 自动滚动的计时是否正在进行(开启了自动滚动且没有暂停)
+     */
+    @VisibleForTesting
+    boolean isAutoScrollTicking() {
+        return timer != null && !timer.isStopped;
+    }
+
+    /**
+     * @return 暂停时距离下一次自动滚动剩余的时间,没有暂停中的计时时返回-1
+     */
+    @VisibleForTesting
+    long getAutoScrollRemaining() {
+        return timer == null ? -1 : timer.remaining;
+    }
+
+    /**
+     * 自动滚动的预热时间到达时由{@link TimerHandler}回调:
+     * 将目标页面保留在缓存窗口内,尚未实例化时立即populate,下一次布局时完成measure及layout
+     */
+    void prewarmAutoScrollTarget() {
+        if (!mAutoScroll || mAdapter == null || mAdapter.getCount() <= 1
+                || mTouching || mScrollState != SCROLL_STATE_IDLE) {
+            return;
+        }
+        final int nextItem = getAutoScrollNextItem();
+        //只预热相邻页面,非循环模式下从末页跳回首页时不为此扩大缓存窗口
+        if (Math.abs(nextItem - mCurItem) != 1) {
+            return;
+        }
+        mPrewarmItem = nextItem;
+        mPrewarmDeadline = timer.nextTickTime + mAutoScrollPrewarmTime;
+        if (infoForPosition(nextItem) == null) {
+            populate();
+        }
+    }
+
+    /**
+     * @return 预热的目标页面内容还没有准备好时,需要推迟自动滚动的时间;不需要推迟时返回0
+     */
+    long getAutoScrollDeferral() {
+        if (mPrewarmItem < 0 || mAdapter == null || SystemClock.uptimeMillis() >= mPrewarmDeadline) {
+            return 0;
+        }
+        final ItemInfo ii = infoForPosition(mPrewarmItem);
+        if (ii == null || isAdapterPageReady(ii.object)) {
+            return 0;
+        }
+        return PREWARM_RETRY_DELAY;
+    }
+
+    private boolean isAdapterPageReady(Object object) {
+        if (mAdapter instanceof PagerAdapterWrapper) {
+            return ((PagerAdapterWrapper) mAdapter).isPageReady(object);
+        } else if (mAdapter instanceof LoopPagerAdapterWrapper) {
+            return ((LoopPagerAdapterWrapper) mAdapter).isPageReady(object);
+        }
+        return true;
+    }
+
+    /**
+     * 开始跑马灯滚动
+     *
+     * @param delay 开始滚动前等待的时间
+     */
+    @RequiresApi(Build.VERSION_CODES.JELLY_BEAN)
+    private void startMarquee(long delay) {
+        mMarqueeStartTime = SystemClock.uptimeMillis() + delay;
+        mMarqueeLastFrameNanos = 0;
+        mMarqueeRemainder = 0;
+        if (mMarqueeRunning) {
+            return;
+        }
+        if (mMarqueeFrameCallback == null) {
+            mMarqueeFrameCallback = new Choreographer.FrameCallback() {
+                @Override
+                public void doFrame(long frameTimeNanos) {
+                    onMarqueeFrame(frameTimeNanos);
+                }
+            };
+        }
+        mMarqueeRunning = true;
+        Choreographer.getInstance().postFrameCallback(mMarqueeFrameCallback);
+    }
+
+    @RequiresApi(Build.VERSION_CODES.JELLY_BEAN)
+    private void stopMarquee() {
+        if (mMarqueeRunning) {
+            mMarqueeRunning = false;
+            Choreographer.getInstance().removeFrameCallback(mMarqueeFrameCallback);
+        }
+    }
+
+    /**
+     * 按上一帧到这一帧的时间及设置的速度滚动,帧率波动时速度保持不变
+     *
+     * @param frameTimeNanos
+     */
+    @RequiresApi(Build.VERSION_CODES.JELLY_BEAN)
+    private void onMarqueeFrame(long frameTimeNanos) {
+        if (!mMarqueeRunning) {
+            return;
+        }
+        Choreographer.getInstance().postFrameCallback(mMarqueeFrameCallback);
+        if (SystemClock.uptimeMillis() < mMarqueeStartTime) {
+            mMarqueeLastFrameNanos = 0;
+            return;
+        }
+        final long lastFrameNanos = mMarqueeLastFrameNanos;
+        mMarqueeLastFrameNanos = frameTimeNanos;
+        //用户触摸或正在滑动到指定页面(例如调用了setCurrentItem)时不滚动
+        if (lastFrameNanos == 0 || mAdapter == null || mItems.isEmpty() || mFirstLayout
+                || mTouching || mScrollState != SCROLL_STATE_IDLE || getClientWidth() <= 0) {
+            return;
+        }
+        final float distance = mMarqueeSpeed * (frameTimeNanos - lastFrameNanos) / 1000000000f + mMarqueeRemainder;
+        final int dx = (int) distance;
+        mMarqueeRemainder = distance - dx;
+        if (dx != 0) {
+            marqueeScrollBy(mAutoScrollDirection == AutoScrollDirection.FORWARD ? dx : -dx);
+        }
+    }
+
+    /**
+     * 跑马灯滚动一段距离,滚动位置所在的页面变化时更新当前页并populate.
+     * 非循环滚动时滚动到最后(反向时为最前)的页面边缘后停止,直到自动滚动被重新开始(例如用户拖动后)
+     *
+     * @param dx
+     */
+    @RequiresApi(Build.VERSION_CODES.JELLY_BEAN)
+    private void marqueeScrollBy(int dx) {
+        final int width = getClientWidth();
+        final int count = mAdapter.getCount();
+        final CoolViewPager.ItemInfo firstItem = mItems.get(0);
+        final CoolViewPager.ItemInfo lastItem = mItems.get(mItems.size() - 1);
+        final float leftBound = width * (firstItem.position == 0 ? mFirstOffset : firstItem.offset);
+        final float rightBound = width * (lastItem.position == count - 1 ? mLastOffset : lastItem.offset);
+        int scrollX = getScrollX() + dx;
+        boolean reachedEnd = false;
+        if (scrollX < leftBound || scrollX > rightBound) {
+            //没有更多页面(非循环滚动),停在边缘
+            reachedEnd = (dx > 0 && lastItem.position == count - 1) || (dx < 0 && firstItem.position == 0);
+            scrollX = (int) Math.max(leftBound, Math.min(rightBound, scrollX));
+        }
+        scrollTo(scrollX, getScrollY());
+        pageScrolled(scrollX);
+        final CoolViewPager.ItemInfo ii = infoForCurrentScrollPosition();
+        if (ii != null && ii.position != mCurItem) {
+            populate(ii.position);
+            dispatchOnPageSelected(ii.position);
+        }
+        if (reachedEnd) {
+            stopTimer();
+        }
+    }
+
+    /**
+     * 屏幕点亮或熄灭,由{@link AutoScrollScheduler}通知
+     */
+    void onScreenInteractiveChanged() {
+        updateTimerState();
+    }
+
     /**
      * 获取在自动滚动开启情况下,当前实例要展示的下一页的索引值
      *
@@ -622,14 +1293,24 @@ public class CoolViewPager extends ViewGroup implements ICoolViewPagerFeature {
             mScrollMode = ScrollMode.getScrollMode(ta.getInt(R.styleable.CoolViewPager_cvp_scrollmode, 0));
             mAutoScroll = ta.getBoolean(R.styleable.CoolViewPager_cvp_autoscroll, mAutoScroll);
             mIntervalInMillis = ta.getInteger(R.styleable.CoolViewPager_cvp_intervalinmillis, mIntervalInMillis);
+            mAutoScrollPrewarmTime = ta.getInteger(R.styleable.CoolViewPager_cvp_autoscrollprewarm, mAutoScrollPrewarmTime);
+            mMarquee = ta.getBoolean(R.styleable.CoolViewPager_cvp_marquee, mMarquee);
+            mMarqueeSpeedDp = ta.getInteger(R.styleable.CoolViewPager_cvp_marqueespeed, mMarqueeSpeedDp);
             mAutoScrollDirection = AutoScrollDirection.getAutoScrollDirection(ta.getInt(R.styleable.CoolViewPager_cvp_autoscrolldirection, 0));
             mInfiniteLoop = ta.getBoolean(R.styleable.CoolViewPager_cvp_infiniteloop, mInfiniteLoop);
+            mSeamlessLoop = ta.getBoolean(R.styleable.CoolViewPager_cvp_seamlessloop, mSeamlessLoop);
+            mLoopMode = LoopMode.getLoopMode(ta.getInt(R.styleable.CoolViewPager_cvp_loopmode, 0));
             mScrollDuration = ta.getInteger(R.styleable.CoolViewPager_cvp_scrollduration, mScrollDuration);
+            mFrameBudgetAware = ta.getBoolean(R.styleable.CoolViewPager_cvp_framebudgetaware, mFrameBudgetAware)
+                    && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN;
             mDrawEdgeEffect = ta.getBoolean(R.styleable.CoolViewPager_cvp_drawedgeeffect, mDrawEdgeEffect);
             mEdgeEffectColor = ta.getColor(R.styleable.CoolViewPager_cvp_edgeeffectcolor, mEdgeEffectColor);
             ta.recycle();
         }
         setScrollMode(mScrollMode);
+        final boolean marquee = mMarquee;
+        mMarquee = false;
+        setMarquee(marquee, mMarqueeSpeedDp);
         setAutoScroll(mAutoScroll, mIntervalInMillis);
         setAutoScrollDirection(mAutoScrollDirection);
         if (mDrawEdgeEffect && mEdgeEffectColor != -Integer.MAX_VALUE) {
@@ -729,6 +1410,21 @@ public class CoolViewPager extends ViewGroup implements ICoolViewPagerFeature {
         }
 
         mScrollState = newState;
+        if (newState == SCROLL_STATE_DRAGGING && mEffectiveBehindLimit == 0 && !mFakeDragging) {
+            //开始拖动时临时补齐后方1页,松手后随滑动结束时的populate释放;只是点击时不补齐
+            mHoldBehindPage = true;
+            populate();
+        }
+        if (mAutoScrollSettling && newState != SCROLL_STATE_SETTLING) {
+            //自动滚动的滑动结束或被用户拖动打断
+            mAutoScrollSettling = false;
+            stopFrameBudgetMonitor(newState == SCROLL_STATE_IDLE);
+        }
+        if (newState == SCROLL_STATE_IDLE) {
+            if (mResumeAutoScrollAfterSettle && !mTouching) {
+                resumeAutoScrollAfterTouch();
+            }
+        }
         if (mPageTransformer != null) {
             // PageTransformers can do complex things that benefit from hardware layers.
             enableLayers(newState != SCROLL_STATE_IDLE);
@@ -754,7 +1450,7 @@ public class CoolViewPager extends ViewGroup implements ICoolViewPagerFeature {
                 mAdapter.destroyItem(this, ii.position, ii.object);
             }
             mAdapter.finishUpdate(this);
-            mItems.clear();
+            clearItems();
             //将页面的Views移除
             removeNonDecorViews();
             mCurItem = 0;
@@ -764,12 +1460,29 @@ public class CoolViewPager extends ViewGroup implements ICoolViewPagerFeature {
         final PagerAdapter oldAdapter = mAdapter;
         //对于原生PagerAdapter实例,如果Item数量<=1,则不应该让其循环滚动
         if (mInfiniteLoop && adapter.getCount() > 1) {
-            mAdapter = new LoopPagerAdapterWrapper(adapter);
+            final LoopPagerAdapterWrapper loopAdapter =
+                    new LoopPagerAdapterWrapper(adapter, mLoopMode == LoopMode.VIRTUAL_COUNT);
+            if (!loopAdapter.isVirtualCount()) {
+                loopAdapter.setGhostCount(computeGhostCount(adapter));
+                loopAdapter.setSharePages(canShareLoopPages(adapter));
+                loopAdapter.setSnapshotGhostPages(mSnapshotGhostPages);
+            }
+            mAdapter = loopAdapter;
+            if (mLoopMode == LoopMode.VIRTUAL_COUNT) {
+                if (mPageOffsetIndex == null) {
+                    //虚拟数量模式下跳转距离可能很大,使用按周期建立的偏移量索引,避免逐页累加
+                    mPageOffsetIndex = new PageOffsetIndex();
+                    mPageOffsetIndexAuto = true;
+                }
+            } else {
+                removeAutoPageOffsetIndex();
+            }
             setOnPageChangeListener(onPageChangeListener);
         } else {
             mInfiniteLoop = false;
 //            mAdapter = adapter;
             mAdapter = new PagerAdapterWrapper(adapter);
+            removeAutoPageOffsetIndex();
             setOnPageChangeListener(null);
         }
         mExpectedAdapterCount = 0;
@@ -786,10 +1499,14 @@ public class CoolViewPager extends ViewGroup implements ICoolViewPagerFeature {
             //设定当前是第一次layout
             mFirstLayout = true;
             mExpectedAdapterCount = mAdapter.getCount();
+            if (mPageOffsetIndex != null) {
+                mPageOffsetIndex.invalidate();
+            }
             if (mRestoredCurItem >= 0) {
                 mAdapter.restoreState(mRestoredAdapterState, mRestoredClassLoader);
-                setCurrentItemInternal(mRestoredCurItem, false, true);
+                setCurrentItemInternal(resolveRestoredItem(mRestoredCurItem, mRestoredCurItemId), false, true);
                 mRestoredCurItem = -1;
+                mRestoredCurItemId = StableIdPagerAdapter.NO_ID;
                 mRestoredAdapterState = null;
                 mRestoredClassLoader = null;
             } else if (!wasFirstLayout) {
@@ -813,6 +1530,101 @@ public class CoolViewPager extends ViewGroup implements ICoolViewPagerFeature {
         checkAndStartTimer();
     }
 
+    /**
+     * 一屏最多可见的页数,由最窄的页面宽度决定
+     *
+     * @param adapter 用户提供的原始Adapter
+     * @return
+     */
+    private int getMaxVisiblePages(PagerAdapter adapter) {
+        float minWidth = 1.f;
+        for (int i = 0, count = adapter.getCount(); i < count; i++) {
+            minWidth = Math.min(minWidth, adapter.getPageWidth(i));
+        }
+        return minWidth > 0 ? (int) Math.ceil(1.f / minWidth) : 1;
+    }
+
+    /**
+     * 循环滚动时首尾各自需要的辅助页数:覆盖一屏可见的页数及前方缓存页数,且不超过真实页面数
+     *
+     * @param adapter 用户提供的原始Adapter
+     * @return
+     */
+    private int computeGhostCount(PagerAdapter adapter) {
+        final int ghostCount = Math.max(getMaxVisiblePages(adapter), mEffectiveAheadLimit);
+        return Math.max(1, Math.min(ghostCount, adapter.getCount()));
+    }
+
+    /**
+     * 同一真实页面的两个位置相隔真实页面数,只要其大于缓存窗口加一屏可见的页数,
+     * 两者就不会同时需要显示,辅助页可以与真实页共用同一页面对象.
+     * <p>
+     * 真实页面数不超过缓存窗口加一屏可见的页数时不共用:同一页面对象需要同时出现在两个位置,而一个View只能布局在一处.
+     * 此时辅助页仍各自实例化页面(开启快照辅助页时改为绘制快照),辅助页数不超过真实页面数,额外的页面数有上限
+     * </p>
+     *
+     * @param adapter 用户提供的原始Adapter
+     * @return
+     */
+    private boolean canShareLoopPages(PagerAdapter adapter) {
+        return adapter.getCount() > mEffectiveAheadLimit + mEffectiveBehindLimit + getMaxVisiblePages(adapter);
+    }
+
+    /**
+     * 循环滚动的辅助页与真实页共用同一页面对象时,该页面同时对应多个ItemInfo.
+     * 将页面绑定到离可视区域中心最近的ItemInfo,并直接移动到对应位置
+     */
+    private void bindSharedPages() {
+        if (!(mAdapter instanceof LoopPagerAdapterWrapper) || !((LoopPagerAdapterWrapper) mAdapter).hasSharedPages()) {
+            return;
+        }
+        final int width = getClientWidth();
+        if (width <= 0) {
+            return;
+        }
+        final LoopPagerAdapterWrapper loopAdapter = (LoopPagerAdapterWrapper) mAdapter;
+        final int realCount = loopAdapter.getRealCount();
+        final float center = (float) getScrollX() / width + 0.5f;
+        for (int i = 0; i < getChildCount(); i++) {
+            final View child = getChildAt(i);
+            final CoolViewPager.LayoutParams lp = (CoolViewPager.LayoutParams) child.getLayoutParams();
+            if (lp.isDecor) {
+                continue;
+            }
+            final int realPosition = loopAdapter.getRealPositionForView(child);
+            if (realPosition < 0) {
+                continue;
+            }
+            //辅助页数不超过真实页面数,同一真实页面只可能出现在真实位置及其前后相隔realCount的辅助页位置
+            final int innerPosition = loopAdapter.toInnerPosition(realPosition);
+            CoolViewPager.ItemInfo nearest = null;
+            float nearestDistance = Float.MAX_VALUE;
+            for (int k = -1; k <= 1; k++) {
+                final CoolViewPager.ItemInfo ii = infoForPosition(innerPosition + k * realCount);
+                if (ii != null && mAdapter.isViewFromObject(child, ii.object)) {
+                    final float distance = Math.abs(ii.offset + ii.widthFactor / 2 - center);
+                    if (distance < nearestDistance) {
+                        nearest = ii;
+                        nearestDistance = distance;
+                    }
+                }
+            }
+            final CoolViewPager.ItemInfo bound = lp.itemInfo != null && lp.itemInfo.child == child ? lp.itemInfo : null;
+            if (nearest == null || nearest == bound) {
+                continue;
+            }
+            if (bound != null) {
+                bound.child = null;
+                child.offsetLeftAndRight((int) (width * nearest.offset) - (int) (width * bound.offset));
+            } else {
+                requestLayout();
+            }
+            nearest.child = child;
+            lp.itemInfo = nearest;
+            lp.position = nearest.position;
+        }
+    }
+
     private void removeNonDecorViews() {
         for (int i = 0; i < getChildCount(); i++) {
             final View child = getChildAt(i);
@@ -935,7 +1747,21 @@ public class CoolViewPager extends ViewGroup implements ICoolViewPagerFeature {
         } else if (item >= mAdapter.getCount()) {
             item = mAdapter.getCount() - 1;
         }
-        final int pageLimit = mOffscreenPageLimit;
+        if (smoothScroll && item != mCurItem) {
+            mLastScrollForward = item > mCurItem;
+            if (mEffectiveBehindLimit == 0) {
+                //后方不保留页面时,滚动途经的页面会在populate中被移除,滚动结束前需保留它们
+                final int from = Math.min(item, mCurItem);
+                final int to = Math.max(item, mCurItem);
+                for (int i = 0; i < mItems.size(); i++) {
+                    final CoolViewPager.ItemInfo ii = mItems.get(i);
+                    if (ii.position >= from && ii.position <= to) {
+                        ii.scrolling = true;
+                    }
+                }
+            }
+        }
+        final int pageLimit = getOffscreenPageLimit();
         if (item > (mCurItem + pageLimit) || item < (mCurItem - pageLimit)) {
             // We are doing a jump by more than one page.  To avoid
             // glitches, we want to keep all current pages in the view
@@ -1075,6 +1901,7 @@ public class CoolViewPager extends ViewGroup implements ICoolViewPagerFeature {
         final boolean hasTransformer = transformer != null;
         final boolean needsPopulate = hasTransformer != (mPageTransformer != null);
         mPageTransformer = transformer;
+        resetCulledPageTransforms();
         setChildrenDrawingOrderEnabled(hasTransformer);
         if (hasTransformer) {
             mDrawingOrder = reverseDrawingOrder ? DRAW_ORDER_REVERSE : DRAW_ORDER_FORWARD;
@@ -1082,66 +1909,331 @@ public class CoolViewPager extends ViewGroup implements ICoolViewPagerFeature {
         } else {
             mDrawingOrder = DRAW_ORDER_DEFAULT;
         }
-        if (needsPopulate) populate();
+        if (needsPopulate) populate();
+    }
+
+    @Override
+    protected int getChildDrawingOrder(int childCount, int i) {
+        final int index = mDrawingOrder == DRAW_ORDER_REVERSE ? childCount - 1 - i : i;
+        final int result =
+                ((CoolViewPager.LayoutParams) mDrawingOrderedChildren.get(index).getLayoutParams()).childIndex;
+        return result;
+    }
+
+    /**
+     * Set a separate OnPageChangeListener for internal use by the support library.
+     *
+     * @param listener Listener to set
+     * @return The old listener that was set, if any.
+     */
+    CoolViewPager.OnPageChangeListener setInternalPageChangeListener(CoolViewPager.OnPageChangeListener listener) {
+        CoolViewPager.OnPageChangeListener oldListener = mInternalPageChangeListener;
+        mInternalPageChangeListener = listener;
+        return oldListener;
+    }
+
+    /**
+     * Returns the number of pages that will be retained to either side of the
+     * current page in the view hierarchy in an idle state. Defaults to 1.
+     * 前后保留页面数不同时,返回较大的一个
+     *
+     * @return How many pages will be kept offscreen on either side
+     * @see #setOffscreenPageLimit(int)
+     * @see #setOffscreenPageLimit(int, int)
+     */
+    public int getOffscreenPageLimit() {
+        return Math.max(mOffscreenPageLimit, mOffscreenPageLimitBehind);
+    }
+
+    public int getOffscreenPageLimitAhead() {
+        return mOffscreenPageLimit;
+    }
+
+    public int getOffscreenPageLimitBehind() {
+        return mOffscreenPageLimitBehind;
+    }
+
+    /**
+     * Set the number of pages that should be retained to either side of the
+     * current page in the view hierarchy in an idle state. Pages beyond this
+     * limit will be recreated from the adapter when needed.
+     * <p>
+     * <p>This is offered as an optimization. If you know in advance the number
+     * of pages you will need to support or have lazy-loading mechanisms in place
+     * on your pages, tweaking this setting can have benefits in perceived smoothness
+     * of paging animations and interaction. If you have a small number of pages (3-4)
+     * that you can keep active all at once, less time will be spent in layout for
+     * newly created view subtrees as the user pages back and forth.</p>
+     * <p>
+     * <p>You should keep this limit low, especially if your pages have complex layouts.
+     * This setting defaults to 1.</p>
+     *
+     * @param limit How many pages will be kept offscreen in an idle state.
+     */
+    public void setOffscreenPageLimit(int limit) {
+        if (limit < DEFAULT_OFFSCREEN_PAGES) {
+            Log.w(TAG, "Requested offscreen page limit " + limit + " too small; defaulting to "
+                    + DEFAULT_OFFSCREEN_PAGES);
+            limit = DEFAULT_OFFSCREEN_PAGES;
+        }
+        setOffscreenPageLimit(limit, limit);
+    }
+
+    /**
+     * 分别设置滑动方向前方及后方保留的页面数.
+     * 例如自动滚动的轮播图只需要保留前方的页面:setOffscreenPageLimit(0, 3)共保留4页,
+     * 而setOffscreenPageLimit(3)需要保留7页.
+     * 后方页面数为0时,手指按下期间会临时保留后方1页,保证用户可以向后拖动.
+     *
+     * @param behindLimit 后方保留的页面数,不小于0
+     * @param aheadLimit  前方保留的页面数,不小于1
+     * @see #setOffscreenPageLimitFollowDirection(boolean)
+     */
+    public void setOffscreenPageLimit(int behindLimit, int aheadLimit) {
+        if (behindLimit < 0) {
+            behindLimit = 0;
+        }
+        if (aheadLimit < DEFAULT_OFFSCREEN_PAGES) {
+            Log.w(TAG, "Requested offscreen page limit " + aheadLimit + " too small; defaulting to "
+                    + DEFAULT_OFFSCREEN_PAGES);
+            aheadLimit = DEFAULT_OFFSCREEN_PAGES;
+        }
+        if (behindLimit != mOffscreenPageLimitBehind || aheadLimit != mOffscreenPageLimit) {
+            mOffscreenPageLimitBehind = behindLimit;
+            mOffscreenPageLimit = aheadLimit;
+            updateEffectivePageLimits();
+        }
+    }
+
+    /**
+     * 根据内存状况决定页面窗口大小的策略
+     */
+    public interface PageWindowPolicy {
+        /**
+         * @param trimMemoryLevel 收到过的最严重的{@link ComponentCallbacks2#onTrimMemory(int)}等级(按{@link CoolViewPager#getMemorySeverity(int)}比较),内存充足时为0
+         * @param requestedPages  按{@link #setOffscreenPageLimit(int, int)}应存活的页面数(含当前页)
+         * @return 允许同时存活的页面数(含当前页),至少为2
+         */
+        int getMaxAlivePages(int trimMemoryLevel, int requestedPages);
+    }
+
+    public static final int MEMORY_SEVERITY_NONE = 0;
+    public static final int MEMORY_SEVERITY_MODERATE = 1;
+    public static final int MEMORY_SEVERITY_LOW = 2;
+    public static final int MEMORY_SEVERITY_CRITICAL = 3;
+
+    /**
+     * onTrimMemory的等级数值并不随严重程度递增(例如TRIM_MEMORY_UI_HIDDEN为20,TRIM_MEMORY_RUNNING_CRITICAL为15),
+     * 比较严重程度时需先换算
+     *
+     * @param trimMemoryLevel
+     * @return MEMORY_SEVERITY_NONE、MEMORY_SEVERITY_MODERATE、MEMORY_SEVERITY_LOW或MEMORY_SEVERITY_CRITICAL
+     */
+    public static int getMemorySeverity(int trimMemoryLevel) {
+        switch (trimMemoryLevel) {
+            case ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE:
+            case ComponentCallbacks2.TRIM_MEMORY_BACKGROUND:
+                return MEMORY_SEVERITY_MODERATE;
+            case ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW:
+            case ComponentCallbacks2.TRIM_MEMORY_MODERATE:
+                return MEMORY_SEVERITY_LOW;
+            case ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL:
+            case ComponentCallbacks2.TRIM_MEMORY_COMPLETE:
+                return MEMORY_SEVERITY_CRITICAL;
+            default:
+                //TRIM_MEMORY_UI_HIDDEN只表示界面不可见,不代表内存紧张
+                return trimMemoryLevel > ComponentCallbacks2.TRIM_MEMORY_COMPLETE
+                        ? MEMORY_SEVERITY_CRITICAL : MEMORY_SEVERITY_NONE;
+        }
+    }
+
+    /**
+     * 默认策略:内存较低时页面数减半,内存严重不足时只保留当前页及前方1页
+     */
+    public static final PageWindowPolicy DEFAULT_PAGE_WINDOW_POLICY = new PageWindowPolicy() {
+        @Override
+        public int getMaxAlivePages(int trimMemoryLevel, int requestedPages) {
+            final int severity = getMemorySeverity(trimMemoryLevel);
+            if (severity >= MEMORY_SEVERITY_CRITICAL) {
+                return 2;
+            }
+            if (severity >= MEMORY_SEVERITY_LOW) {
+                return Math.max(2, (requestedPages + 1) / 2);
+            }
+            return requestedPages;
+        }
+    };
+
+    /**
+     * 设置根据内存状况决定页面窗口大小的策略,为null时使用{@link #DEFAULT_PAGE_WINDOW_POLICY}
+     *
+     * @param policy
+     */
+    public void setPageWindowPolicy(@Nullable PageWindowPolicy policy) {
+        mPageWindowPolicy = policy != null ? policy : DEFAULT_PAGE_WINDOW_POLICY;
+        updateEffectivePageLimits();
+    }
+
+    /**
+     * 设置当前实例最多同时存活的页面数(含当前页),用于控制单个CoolViewPager的内存预算.
+     * 超出时优先减少后方页面,再减少前方页面.<=0表示不限制
+     *
+     * @param maxAlivePages
+     */
+    public void setMaxAlivePages(int maxAlivePages) {
+        if (mMaxAlivePages != maxAlivePages) {
+            mMaxAlivePages = maxAlivePages;
+            updateEffectivePageLimits();
+        }
+    }
+
+    public int getMaxAlivePages() {
+        return mMaxAlivePages;
+    }
+
+    /**
+     * @return 当前存活(已instantiateItem且尚未destroyItem)的页面数
+     */
+    public int getAlivePageCount() {
+        return mItems.size();
+    }
+
+    /**
+     * 根据用户设置的页面数、内存预算及内存状况,计算populate实际使用的前方/后方页面数,有变化时重新populate
+     */
+    private void updateEffectivePageLimits() {
+        final int requested = mOffscreenPageLimit + mOffscreenPageLimitBehind + 1;
+        int maxAlive = mPageWindowPolicy.getMaxAlivePages(mTrimMemoryLevel, requested);
+        if (mMaxAlivePages > 0) {
+            maxAlive = Math.min(maxAlive, mMaxAlivePages);
+        }
+        final int offscreen = Math.max(DEFAULT_OFFSCREEN_PAGES, maxAlive - 1);
+        final int ahead = Math.max(DEFAULT_OFFSCREEN_PAGES, Math.min(mOffscreenPageLimit, offscreen));
+        final int behind = Math.max(0, Math.min(mOffscreenPageLimitBehind, offscreen - ahead));
+        if (ahead != mEffectiveAheadLimit || behind != mEffectiveBehindLimit) {
+            mEffectiveAheadLimit = ahead;
+            mEffectiveBehindLimit = behind;
+            if (mAdapter instanceof LoopPagerAdapterWrapper) {
+                //缓存窗口变大后两个位置可能同时需要显示,重新判断是否共用页面对象
+                final LoopPagerAdapterWrapper loopAdapter = (LoopPagerAdapterWrapper) mAdapter;
+                loopAdapter.setSharePages(!loopAdapter.isVirtualCount()
+                        && canShareLoopPages(loopAdapter.getRealAdapter()));
+            }
+            populate();
+        }
+    }
+
+    /**
+     * 收到onTrimMemory、onLowMemory回调,由{@link AutoScrollScheduler}通知
+     *
+     * @param level
+     */
+    void onMemoryLevelChanged(int level) {
+        final int severity = getMemorySeverity(level);
+        if (severity == MEMORY_SEVERITY_NONE) {
+            return;
+        }
+        if (severity > getMemorySeverity(mTrimMemoryLevel)) {
+            mTrimMemoryLevel = level;
+            updateEffectivePageLimits();
+        }
+        //每次收到内存紧张的回调都重新计时
+        scheduleMemoryRecoverCheck();
+    }
+
+    private void scheduleMemoryRecoverCheck() {
+        removeCallbacks(mMemoryRecoverRunnable);
+        if (mTrimMemoryLevel != 0) {
+            postDelayed(mMemoryRecoverRunnable, MEMORY_RECOVER_DELAY);
+        }
+    }
+
+    /**
+     * 内存紧张一段时间后,如果系统已不再处于低内存状态,恢复用户设置的页面窗口;否则稍后再检查
+     */
+    private final Runnable mMemoryRecoverRunnable = new Runnable() {
+        @Override
+        public void run() {
+            if (mTrimMemoryLevel == 0) {
+                return;
+            }
+            final ActivityManager am = (ActivityManager) getContext().getSystemService(Context.ACTIVITY_SERVICE);
+            if (am != null) {
+                final ActivityManager.MemoryInfo memoryInfo = new ActivityManager.MemoryInfo();
+                am.getMemoryInfo(memoryInfo);
+                if (memoryInfo.lowMemory) {
+                    scheduleMemoryRecoverCheck();
+                    return;
+                }
+            }
+            mTrimMemoryLevel = 0;
+            updateEffectivePageLimits();
+        }
+    };
+
+    /**
+     * 设置{@link #setOffscreenPageLimit(int, int)}中的"前方"是否跟随滑动方向.
+     * 为true时,开启自动滚动的情况下前方为自动滚动方向,否则为最近一次滑动(手指滑动、setCurrentItem平滑滚动)的方向;
+     * 为false时,前方固定为position增大的方向.默认为false
+     *
+     * @param followDirection
+     */
+    public void setOffscreenPageLimitFollowDirection(boolean followDirection) {
+        if (mOffscreenPageLimitFollowDirection != followDirection) {
+            mOffscreenPageLimitFollowDirection = followDirection;
+            populate();
+        }
     }
 
-    @Override
-    protected int getChildDrawingOrder(int childCount, int i) {
-        final int index = mDrawingOrder == DRAW_ORDER_REVERSE ? childCount - 1 - i : i;
-        final int result =
-                ((CoolViewPager.LayoutParams) mDrawingOrderedChildren.get(index).getLayoutParams()).childIndex;
-        return result;
+    public boolean isOffscreenPageLimitFollowDirection() {
+        return mOffscreenPageLimitFollowDirection;
     }
 
     /**
-     * Set a separate OnPageChangeListener for internal use by the support library.
-     *
-     * @param listener Listener to set
-     * @return The old listener that was set, if any.
+     * @return populate时"前方"是否为position增大的方向
      */
-    CoolViewPager.OnPageChangeListener setInternalPageChangeListener(CoolViewPager.OnPageChangeListener listener) {
-        CoolViewPager.OnPageChangeListener oldListener = mInternalPageChangeListener;
-        mInternalPageChangeListener = listener;
-        return oldListener;
+    private boolean isAheadForward() {
+        if (!mOffscreenPageLimitFollowDirection) {
+            return true;
+        }
+        if (mAutoScroll) {
+            return mAutoScrollDirection == AutoScrollDirection.FORWARD;
+        }
+        return mLastScrollForward;
     }
 
     /**
-     * Returns the number of pages that will be retained to either side of the
-     * current page in the view hierarchy in an idle state. Defaults to 1.
+     * 设置是否开启页面偏移量索引.
+     * 开启后会为{@link PagerAdapter#getPageWidth(int)}建立前缀和索引,{@link #setCurrentItem(int)}跳转任意距离时,
+     * 页面偏移量及首尾页偏移量的计算均为O(log n),适用于页数很多且每页宽度不同的场景.
+     * 索引在{@link PagerAdapter#notifyDataSetChanged()}后重建.
      *
-     * @return How many pages will be kept offscreen on either side
-     * @see #setOffscreenPageLimit(int)
+     * @param enabled
      */
-    public int getOffscreenPageLimit() {
-        return mOffscreenPageLimit;
+    public void setPageOffsetIndexEnabled(boolean enabled) {
+        //用户的设置优先,自动创建的索引改为由用户管理
+        mPageOffsetIndexAuto = false;
+        if (enabled == (mPageOffsetIndex != null)) {
+            return;
+        }
+        mPageOffsetIndex = enabled ? new PageOffsetIndex() : null;
+        populate();
     }
 
     /**
-     * Set the number of pages that should be retained to either side of the
-     * current page in the view hierarchy in an idle state. Pages beyond this
-     * limit will be recreated from the adapter when needed.
-     * <p>
-     * <p>This is offered as an optimization. If you know in advance the number
-     * of pages you will need to support or have lazy-loading mechanisms in place
-     * on your pages, tweaking this setting can have benefits in perceived smoothness
-     * of paging animations and interaction. If you have a small number of pages (3-4)
-     * that you can keep active all at once, less time will be spent in layout for
-     * newly created view subtrees as the user pages back and forth.</p>
-     * <p>
-     * <p>You should keep this limit low, especially if your pages have complex layouts.
-     * This setting defaults to 1.</p>
-     *
-     * @param limit How many pages will be kept offscreen in an idle state.
+     * @return 是否通过{@link #setPageOffsetIndexEnabled(boolean)}开启了页面偏移量索引,不含VIRTUAL_COUNT循环模式自动开启的索引
      */
-    public void setOffscreenPageLimit(int limit) {
-        if (limit < DEFAULT_OFFSCREEN_PAGES) {
-            Log.w(TAG, "Requested offscreen page limit " + limit + " too small; defaulting to "
-                    + DEFAULT_OFFSCREEN_PAGES);
-            limit = DEFAULT_OFFSCREEN_PAGES;
-        }
-        if (limit != mOffscreenPageLimit) {
-            mOffscreenPageLimit = limit;
-            populate();
+    public boolean isPageOffsetIndexEnabled() {
+        return mPageOffsetIndex != null && !mPageOffsetIndexAuto;
+    }
+
+    /**
+     * 离开VIRTUAL_COUNT循环模式时,移除该模式自动创建的偏移量索引
+     */
+    private void removeAutoPageOffsetIndex() {
+        if (mPageOffsetIndexAuto) {
+            mPageOffsetIndex = null;
+            mPageOffsetIndexAuto = false;
         }
     }
 
@@ -1248,7 +2340,7 @@ public class CoolViewPager extends ViewGroup implements ICoolViewPagerFeature {
             // whether that scrolling has actually started (if we always call getStartX
             // we can get a stale value from the scroller if it hadn't yet had its first
             // computeScrollOffset call) to decide what is the current scrolling position.
-            sx = mIsScrollStarted ? mScroller.getCurrX() : mScroller.getStartX();
+            sx = (mIsScrollStarted ? mScroller.getCurrX() : mScroller.getStartX()) + mScrollerShift;
             // And abort the current scrolling.
             mScroller.abortAnimation();
             setScrollingCacheEnabled(false);
@@ -1294,34 +2386,151 @@ public class CoolViewPager extends ViewGroup implements ICoolViewPagerFeature {
             //未设置过,则采用原始逻辑获取duration
             duration = Math.min(duration, MAX_SETTLE_DURATION);
         }
+        if (mAutoScrollSettling) {
+            //丢帧降级时延长自动滚动的动画时长
+            duration = Math.round(duration * mAutoScrollDurationScale);
+        }
 
         // Reset the "scroll started" flag. It will be flipped to true in all places
         // where we call computeScrollOffset().
         mIsScrollStarted = false;
+        mScrollerShift = 0;
         mScroller.startScroll(sx, sy, dx, dy, duration);
         ViewCompat.postInvalidateOnAnimation(this);
     }
 
     //添加Item到Items里面，会调用到instantiateItem来生成新的Item
     CoolViewPager.ItemInfo addNewItem(int position, int index) {
-        CoolViewPager.ItemInfo ii = new CoolViewPager.ItemInfo();
+        CoolViewPager.ItemInfo ii = mItemInfoPool.acquire();
+        if (ii == null) {
+            ii = new CoolViewPager.ItemInfo();
+            mItemInfoAllocations++;
+        }
+        ii.recycled = false;
         ii.position = position;
+        ii.scrolling = false;
+        ii.offset = 0.f;
+        ii.child = null;
         ii.object = mAdapter.instantiateItem(this, position);
         ii.widthFactor = mAdapter.getPageWidth(position);
+        if (mPageOffsetIndex != null) {
+            mPageOffsetIndex.setPageWidth(position, ii.widthFactor);
+        }
         if (index < 0 || index >= mItems.size()) {
             mItems.add(ii);
         } else {
             mItems.add(index, ii);
         }
+        mItemsByPosition.put(position, ii);
+        return ii;
+    }
+
+    /**
+     * 从mItems中移除指定索引的ItemInfo,并同步更新position及View索引.
+     * 调用方使用完返回的ItemInfo后,需调用{@link #recycleItemInfo(ItemInfo)}将其放回对象池
+     *
+     * @param index
+     * @return
+     */
+    private CoolViewPager.ItemInfo removeItemAt(int index) {
+        final CoolViewPager.ItemInfo ii = mItems.remove(index);
+        if (mItemsByPosition.get(ii.position) == ii) {
+            mItemsByPosition.remove(ii.position);
+        }
+        //LayoutParams中的引用通过ii.child校验,置空即可使其失效
+        ii.child = null;
         return ii;
     }
 
+    private void recycleItemInfo(CoolViewPager.ItemInfo ii) {
+        if (ii.recycled) {
+            return;
+        }
+        ii.recycled = true;
+        ii.object = null;
+        ii.child = null;
+        mItemInfoPool.release(ii);
+    }
+
+    /**
+     * @return 对象池为空时新建的ItemInfo个数
+     */
+    @VisibleForTesting
+    int getItemInfoAllocationCount() {
+        return mItemInfoAllocations;
+    }
+
+    private void clearItems() {
+        for (int i = 0; i < mItems.size(); i++) {
+            recycleItemInfo(mItems.get(i));
+        }
+        mItems.clear();
+        mItemsByPosition.clear();
+    }
+
+    private boolean hasStableIds() {
+        if (mAdapter instanceof PagerAdapterWrapper) {
+            return ((PagerAdapterWrapper) mAdapter).hasStableIds();
+        } else if (mAdapter instanceof LoopPagerAdapterWrapper) {
+            return ((LoopPagerAdapterWrapper) mAdapter).hasStableIds();
+        }
+        return false;
+    }
+
+    /**
+     * @param position
+     * @return Adapter有稳定ID时返回position对应的ID,否则返回StableIdPagerAdapter.NO_ID
+     */
+    private long getAdapterItemId(int position) {
+        if (mAdapter instanceof PagerAdapterWrapper) {
+            return ((PagerAdapterWrapper) mAdapter).getItemId(position);
+        } else if (mAdapter instanceof LoopPagerAdapterWrapper) {
+            return ((LoopPagerAdapterWrapper) mAdapter).getItemId(position);
+        }
+        return StableIdPagerAdapter.NO_ID;
+    }
+
+    /**
+     * 恢复状态时,Adapter有稳定ID则恢复到ID对应的页面,否则恢复到保存时的位置
+     *
+     * @param position
+     * @param itemId
+     * @return
+     */
+    private int resolveRestoredItem(int position, long itemId) {
+        if (itemId == StableIdPagerAdapter.NO_ID || !hasStableIds()) {
+            return position;
+        }
+        int idPosition = -1;
+        if (mAdapter instanceof PagerAdapterWrapper) {
+            idPosition = ((PagerAdapterWrapper) mAdapter).getItemPositionForId(itemId);
+        } else if (mAdapter instanceof LoopPagerAdapterWrapper) {
+            idPosition = ((LoopPagerAdapterWrapper) mAdapter).getItemPositionForId(itemId);
+        }
+        return idPosition >= 0 ? idPosition : position;
+    }
+
+    /**
+     * ItemInfo的position发生变化后(例如dataSetChanged),重建position索引
+     */
+    private void rebuildPositionIndex() {
+        mItemsByPosition.clear();
+        for (int i = 0; i < mItems.size(); i++) {
+            final CoolViewPager.ItemInfo ii = mItems.get(i);
+            mItemsByPosition.put(ii.position, ii);
+        }
+    }
+
     void dataSetChanged() {
         // This method only gets called if our observer is attached, so mAdapter is non-null.
 
         final int adapterCount = mAdapter.getCount();
         mExpectedAdapterCount = adapterCount;
-        boolean needPopulate = mItems.size() < mOffscreenPageLimit * 2 + 1
+        mPrewarmItem = -1;
+        if (mPageOffsetIndex != null) {
+            mPageOffsetIndex.invalidate();
+        }
+        boolean needPopulate = mItems.size() < mEffectiveAheadLimit + mEffectiveBehindLimit + 1
                 && mItems.size() < adapterCount;
         int newCurrItem = mCurItem;
 
@@ -1335,7 +2544,7 @@ public class CoolViewPager extends ViewGroup implements ICoolViewPagerFeature {
             }
 
             if (newPos == PagerAdapter.POSITION_NONE) {
-                mItems.remove(i);
+                removeItemAt(i);
                 i--;
 
                 if (!isUpdating) {
@@ -1351,6 +2560,7 @@ public class CoolViewPager extends ViewGroup implements ICoolViewPagerFeature {
                     newCurrItem = Math.max(0, Math.min(mCurItem, adapterCount - 1));
                     needPopulate = true;
                 }
+                recycleItemInfo(ii);
                 continue;
             }
 
@@ -1370,6 +2580,7 @@ public class CoolViewPager extends ViewGroup implements ICoolViewPagerFeature {
         }
 
         Collections.sort(mItems, COMPARATOR);
+        rebuildPositionIndex();
 
         if (needPopulate) {
             // Reset our known page widths; populate will recompute them.
@@ -1397,6 +2608,11 @@ public class CoolViewPager extends ViewGroup implements ICoolViewPagerFeature {
         ItemInfo oldCurInfo = null;
         if (mCurItem != newCurrentItem) {
             oldCurInfo = infoForPosition(mCurItem);
+            if (oldCurInfo != null) {
+                //旧的当前页可能在下面被移除并回收复用,先拷贝一份
+                mOldCurItem.copyFrom(oldCurInfo);
+                oldCurInfo = mOldCurItem;
+            }
             mCurItem = newCurrentItem;
         }
 
@@ -1411,7 +2627,7 @@ public class CoolViewPager extends ViewGroup implements ICoolViewPagerFeature {
         // fling to a new position until we have finished the scroll to
         // that position, avoiding glitches from happening at that point.
         if (mPopulatePending) {
-            if (DEBUG) Log.i(TAG, "populate is pending, skipping for now...");
+            if (sDebug) Log.i(TAG, "populate is pending, skipping for now...");
             sortChildDrawingOrder();
             return;
         }
@@ -1426,14 +2642,23 @@ public class CoolViewPager extends ViewGroup implements ICoolViewPagerFeature {
         //告诉 PagerAdapter要开始更新了，其实startUpdate 里面好像也没做什么事
         mAdapter.startUpdate(this);
 
-        //一般情况下mItems的长度是 2*pageLimit + 1
-        final int pageLimit = mOffscreenPageLimit;
+        //一般情况下mItems的长度是 前方页面数 + 后方页面数 + 1
+        final boolean aheadForward = isAheadForward();
+        final int behindLimit = mHoldBehindPage
+                ? Math.max(mEffectiveBehindLimit, DEFAULT_OFFSCREEN_PAGES) : mEffectiveBehindLimit;
+        final int leftLimit = aheadForward ? behindLimit : mEffectiveAheadLimit;
+        final int rightLimit = aheadForward ? mEffectiveAheadLimit : behindLimit;
         //起始位置：当前的页面减去缓存页面数量，并确保开始的位置是大于等于0。
-        final int startPos = Math.max(0, mCurItem - pageLimit);
+        int startPos = Math.max(0, mCurItem - leftLimit);
 
         //结束位置：当前页面加上缓存页面的数量，并确保是小于数据源的个数
         final int N = mAdapter.getCount();
-        final int endPos = Math.min(N - 1, mCurItem + pageLimit);
+        int endPos = Math.min(N - 1, mCurItem + rightLimit);
+        //保留预热中的自动滚动目标页
+        if (mPrewarmItem >= 0 && mPrewarmItem < N) {
+            startPos = Math.min(startPos, mPrewarmItem);
+            endPos = Math.max(endPos, mPrewarmItem);
+        }
 
         //如果从Adapter拿到的大小和自认为的大小不一样，那说明Adapter数据源的个数发生变化了，抛出异常
         if (N != mExpectedAdapterCount) {
@@ -1486,8 +2711,9 @@ public class CoolViewPager extends ViewGroup implements ICoolViewPagerFeature {
             //显示区域的宽度
             final int clientWidth = getClientWidth();
             //左边需要的宽度:实际宽度和可视区域的比例，默认情况下是1.0f
+            //左边不保留页面时,只需要填满左内边距的可见区域
             final float leftWidthNeeded = clientWidth <= 0 ? 0 :
-                    2.f - curItem.widthFactor + (float) getPaddingLeft() / (float) clientWidth;
+                    (leftLimit > 0 ? 2.f - curItem.widthFactor : 0.f) + (float) getPaddingLeft() / (float) clientWidth;
             //遍历左半部分
             for (int pos = mCurItem - 1; pos >= 0; pos--) {
                 ////pos < startPos说明已经遍历完了（所需要的宽度并没有期望的大）
@@ -1499,12 +2725,13 @@ public class CoolViewPager extends ViewGroup implements ICoolViewPagerFeature {
                     }
                     //从下面拿到的ItemInfo，如果不为空就走下面的销毁和移除的流程
                     if (pos == ii.position && !ii.scrolling) {
-                        mItems.remove(itemIndex);
+                        removeItemAt(itemIndex);
                         mAdapter.destroyItem(this, pos, ii.object);
-                        if (DEBUG) {
+                        if (sDebug) {
                             Log.i(TAG, "populate() - destroyItem() with pos: " + pos
                                     + " view: " + ((View) ii.object));
                         }
+                        recycleItemInfo(ii);
                         itemIndex--; //删除后左边的的索引也要减1
                         curIndex--;  //当前的索引也要减1
                         ii = itemIndex >= 0 ? mItems.get(itemIndex) : null; //然后会再次进入，并走上面的break
@@ -1529,20 +2756,22 @@ public class CoolViewPager extends ViewGroup implements ICoolViewPagerFeature {
             if (extraWidthRight < 2.f) {
                 //判断方式与上面大致相同
                 ii = itemIndex < mItems.size() ? mItems.get(itemIndex) : null;
+                //右边不保留页面时,只需要填满可视区域及右内边距
                 final float rightWidthNeeded = clientWidth <= 0 ? 0 :
-                        (float) getPaddingRight() / (float) clientWidth + 2.f;
+                        (float) getPaddingRight() / (float) clientWidth + (rightLimit > 0 ? 2.f : 1.f);
                 for (int pos = mCurItem + 1; pos < N; pos++) {
                     if (extraWidthRight >= rightWidthNeeded && pos > endPos) {
                         if (ii == null) {
                             break;
                         }
                         if (pos == ii.position && !ii.scrolling) {
-                            mItems.remove(itemIndex);
+                            removeItemAt(itemIndex);
                             mAdapter.destroyItem(this, pos, ii.object);
-                            if (DEBUG) {
+                            if (sDebug) {
                                 Log.i(TAG, "populate() - destroyItem() with pos: " + pos
                                         + " view: " + ((View) ii.object));
                             }
+                            recycleItemInfo(ii);
                             ii = itemIndex < mItems.size() ? mItems.get(itemIndex) : null;
                         }
                     } else if (ii != null && pos == ii.position) {
@@ -1562,7 +2791,7 @@ public class CoolViewPager extends ViewGroup implements ICoolViewPagerFeature {
             calculatePageOffsets(curItem, curIndex, oldCurInfo);
         }
 
-        if (DEBUG) {
+        if (sDebug) {
             Log.i(TAG, "Current page list:");
             for (int i = 0; i < mItems.size(); i++) {
                 Log.i(TAG, "#" + i + ": page " + mItems.get(i).position);
@@ -1589,6 +2818,7 @@ public class CoolViewPager extends ViewGroup implements ICoolViewPagerFeature {
                 }
             }
         }
+        bindSharedPages();
         sortChildDrawingOrder();
 
         if (hasFocus()) {
@@ -1609,6 +2839,8 @@ public class CoolViewPager extends ViewGroup implements ICoolViewPagerFeature {
     }
 
     //用来更新页卡的排序，
+    //复用mDrawingOrderedChildren并原地插入排序:相邻两次populate之间顺序基本不变,插入排序接近O(n)且不分配内存
+    //(低版本Collections.sort会先toArray拷贝一份)
     private void sortChildDrawingOrder() {
         if (mDrawingOrder != DRAW_ORDER_DEFAULT) {
             if (mDrawingOrderedChildren == null) {
@@ -1617,11 +2849,15 @@ public class CoolViewPager extends ViewGroup implements ICoolViewPagerFeature {
                 mDrawingOrderedChildren.clear();
             }
             final int childCount = getChildCount();
+            mDrawingOrderedChildren.ensureCapacity(childCount);
             for (int i = 0; i < childCount; i++) {
                 final View child = getChildAt(i);
-                mDrawingOrderedChildren.add(child);
+                int j = i - 1;
+                while (j >= 0 && sPositionComparator.compare(mDrawingOrderedChildren.get(j), child) > 0) {
+                    j--;
+                }
+                mDrawingOrderedChildren.add(j + 1, child);
             }
-            Collections.sort(mDrawingOrderedChildren, sPositionComparator);
         }
     }
 
@@ -1629,6 +2865,10 @@ public class CoolViewPager extends ViewGroup implements ICoolViewPagerFeature {
         final int N = mAdapter.getCount();
         final int width = getClientWidth();
         final float marginOffset = width > 0 ? (float) mPageMargin / width : 0;
+        if (mPageOffsetIndex != null) {
+            calculatePageOffsetsIndexed(curItem, oldCurInfo, N, marginOffset);
+            return;
+        }
         // Fix up offsets for later layout.
         if (oldCurInfo != null) {
             final int oldCurPosition = oldCurInfo.position;
@@ -1713,6 +2953,40 @@ public class CoolViewPager extends ViewGroup implements ICoolViewPagerFeature {
         mNeedCalculatePageOffsets = false;
     }
 
+    /**
+     * 使用{@link PageOffsetIndex}计算页面偏移量,与跳转距离无关,每页O(log n)
+     */
+    private void calculatePageOffsetsIndexed(CoolViewPager.ItemInfo curItem, CoolViewPager.ItemInfo oldCurInfo,
+                                             int N, float marginOffset) {
+        final PageOffsetIndex index = mPageOffsetIndex;
+        if (index.needsRebuild(N)) {
+            if (mAdapter instanceof LoopPagerAdapterWrapper && ((LoopPagerAdapterWrapper) mAdapter).isVirtualCount()) {
+                //虚拟数量模式下页面宽度以真实页面数为周期重复
+                index.rebuild(mAdapter, ((LoopPagerAdapterWrapper) mAdapter).getRealCount());
+            } else {
+                index.rebuild(mAdapter);
+            }
+        }
+        final int curPosition = curItem.position;
+        if (oldCurInfo != null && oldCurInfo.position != curPosition) {
+            // Base offsets off of oldCurInfo.
+            curItem.offset = oldCurInfo.offset
+                    + index.offsetBetween(oldCurInfo.position, curPosition, marginOffset);
+        }
+        for (int i = 0; i < mItems.size(); i++) {
+            final CoolViewPager.ItemInfo ii = mItems.get(i);
+            if (ii != curItem) {
+                ii.offset = curItem.offset + index.offsetBetween(curPosition, ii.position, marginOffset);
+            }
+        }
+        if (N > 0) {
+            mFirstOffset = curItem.offset + index.offsetBetween(curPosition, 0, marginOffset);
+            mLastOffset = curItem.offset + index.offsetBetween(curPosition, N - 1, marginOffset)
+                    + index.getPageWidth(N - 1) - 1;
+        }
+        mNeedCalculatePageOffsets = false;
+    }
+
     /**
      * This is the persistent state that is saved by ViewPager.  Only needed
      * if you are creating a sublass of ViewPager that must save its own
@@ -1721,6 +2995,8 @@ public class CoolViewPager extends ViewGroup implements ICoolViewPagerFeature {
      */
     public static class SavedState extends AbsSavedState {
         int position;
+        //Adapter有稳定ID时,当前页的ID
+        long itemId = StableIdPagerAdapter.NO_ID;
         Parcelable adapterState;
         ClassLoader loader;
 
@@ -1733,13 +3009,14 @@ public class CoolViewPager extends ViewGroup implements ICoolViewPagerFeature {
             super.writeToParcel(out, flags);
             out.writeInt(position);
             out.writeParcelable(adapterState, flags);
+            out.writeLong(itemId);
         }
 
         @Override
         public String toString() {
             return "FragmentPager.SavedState{"
                     + Integer.toHexString(System.identityHashCode(this))
-                    + " position=" + position + "}";
+                    + " position=" + position + " itemId=" + itemId + "}";
         }
 
         public static final Creator<SavedState> CREATOR = new ClassLoaderCreator<SavedState>() {
@@ -1766,6 +3043,7 @@ public class CoolViewPager extends ViewGroup implements ICoolViewPagerFeature {
             }
             position = in.readInt();
             adapterState = in.readParcelable(loader);
+            itemId = in.readLong();
             this.loader = loader;
         }
     }
@@ -1777,6 +3055,7 @@ public class CoolViewPager extends ViewGroup implements ICoolViewPagerFeature {
         ss.position = mCurItem;
         if (mAdapter != null) {
             ss.adapterState = mAdapter.saveState();
+            ss.itemId = getAdapterItemId(mCurItem);
         }
         return ss;
     }
@@ -1793,9 +3072,10 @@ public class CoolViewPager extends ViewGroup implements ICoolViewPagerFeature {
 
         if (mAdapter != null) {
             mAdapter.restoreState(ss.adapterState, ss.loader);
-            setCurrentItemInternal(ss.position, false, true);
+            setCurrentItemInternal(resolveRestoredItem(ss.position, ss.itemId), false, true);
         } else {
             mRestoredCurItem = ss.position;
+            mRestoredCurItemId = ss.itemId;
             mRestoredAdapterState = ss.adapterState;
             mRestoredClassLoader = ss.loader;
         }
@@ -1809,6 +3089,12 @@ public class CoolViewPager extends ViewGroup implements ICoolViewPagerFeature {
         final CoolViewPager.LayoutParams lp = (CoolViewPager.LayoutParams) params;
         // Any views added via inflation should be classed as part of the decor
         lp.isDecor |= isDecorView(child);
+        if (!lp.isDecor) {
+            //页面View可能来自RecyclingPagerAdapter的复用池,重置上一次populate留下的状态
+            lp.widthFactor = 0.f;
+            lp.itemInfo = null;
+            lp.transformCulled = false;
+        }
         if (mInLayout) {
             if (lp != null && lp.isDecor) {
                 throw new IllegalStateException("Cannot add pager decor view during layout");
@@ -1843,9 +3129,26 @@ public class CoolViewPager extends ViewGroup implements ICoolViewPagerFeature {
     }
 
     CoolViewPager.ItemInfo infoForChild(View child) {
+        final ViewGroup.LayoutParams params = child.getLayoutParams();
+        final CoolViewPager.LayoutParams lp = params instanceof CoolViewPager.LayoutParams
+                ? (CoolViewPager.LayoutParams) params : null;
+        if (lp != null) {
+            if (lp.isDecor) {
+                return null;
+            }
+            //ItemInfo被移除或回收后child会被置空,因此ii.child == child即说明缓存有效
+            if (lp.itemInfo != null && lp.itemInfo.child == child) {
+                return lp.itemInfo;
+            }
+        }
+        //未命中缓存时才通过isViewFromObject查找,找到后缓存,之后的查找均为O(1)
         for (int i = 0; i < mItems.size(); i++) {
-            CoolViewPager.ItemInfo ii = mItems.get(i);
+            final CoolViewPager.ItemInfo ii = mItems.get(i);
             if (mAdapter.isViewFromObject(child, ii.object)) {
+                if (lp != null && ii.child == null) {
+                    ii.child = child;
+                    lp.itemInfo = ii;
+                }
                 return ii;
             }
         }
@@ -1864,13 +3167,7 @@ public class CoolViewPager extends ViewGroup implements ICoolViewPagerFeature {
     }
 
     CoolViewPager.ItemInfo infoForPosition(int position) {
-        for (int i = 0; i < mItems.size(); i++) {
-            CoolViewPager.ItemInfo ii = mItems.get(i);
-            if (ii.position == position) {
-                return ii;
-            }
-        }
-        return null;
+        return mItemsByPosition.get(position);
     }
 
 
@@ -1969,7 +3266,7 @@ public class CoolViewPager extends ViewGroup implements ICoolViewPagerFeature {
             final View child = getChildAt(i);
             //对GONE的页卡就不测量了
             if (child.getVisibility() != GONE) {
-                if (DEBUG) {
+                if (sDebug) {
                     Log.v(TAG, "Measuring #" + i + " " + child + ": " + mChildWidthMeasureSpec);
                 }
 
@@ -1996,7 +3293,7 @@ public class CoolViewPager extends ViewGroup implements ICoolViewPagerFeature {
     private void recomputeScrollPosition(int width, int oldWidth, int margin, int oldMargin) {
         if (oldWidth > 0 && !mItems.isEmpty()) {
             if (!mScroller.isFinished()) {
-                mScroller.setFinalX(getCurrentItem() * getClientWidth());
+                mScroller.setFinalX(getCurrentItem() * getClientWidth() - mScrollerShift);
             } else {
                 final int widthWithMargin = width - getPaddingLeft() - getPaddingRight() + margin;
                 final int oldWidthWithMargin = oldWidth - getPaddingLeft() - getPaddingRight()
@@ -2114,7 +3411,7 @@ public class CoolViewPager extends ViewGroup implements ICoolViewPagerFeature {
                                 MeasureSpec.EXACTLY);
                         child.measure(widthSpec, heightSpec);
                     }
-                    if (DEBUG) {
+                    if (sDebug) {
                         Log.v(TAG, "Positioning #" + i + " " + child + " f=" + ii.object
                                 + ":" + childLeft + "," + childTop + " " + child.getMeasuredWidth()
                                 + "x" + child.getMeasuredHeight());
@@ -2144,7 +3441,7 @@ public class CoolViewPager extends ViewGroup implements ICoolViewPagerFeature {
         if (!mScroller.isFinished() && mScroller.computeScrollOffset()) {
             int oldX = getScrollX();
             int oldY = getScrollY();
-            int x = mScroller.getCurrX();
+            int x = mScroller.getCurrX() + mScrollerShift;
             int y = mScroller.getCurrY();
 
             if (oldX != x || oldY != y) {
@@ -2183,6 +3480,10 @@ public class CoolViewPager extends ViewGroup implements ICoolViewPagerFeature {
             }
             return false;
         }
+        if (rebaseLoopIfNeeded()) {
+            xpos = getScrollX();
+        }
+        bindSharedPages();
         final CoolViewPager.ItemInfo ii = infoForCurrentScrollPosition();
         // 获取显示区域的宽度
         final int width = getClientWidth();
@@ -2206,6 +3507,110 @@ public class CoolViewPager extends ViewGroup implements ICoolViewPagerFeature {
         return true;
     }
 
+    /**
+     * 无缝循环模式下,滑动位置进入首尾辅助页时,将所有页面的位置整体平移一个周期(真实页面数),
+     * 偏移量及滚动坐标同步平移,界面内容保持不变.
+     * 跨越边界时不需要setCurrentItem,当前页面也不会被重新实例化
+     *
+     * @return 是否进行了平移
+     */
+    private boolean rebaseLoopIfNeeded() {
+        //跑马灯滚动期间总是原地平移,内容不会结束
+        if ((!mSeamlessLoop && !mMarqueeRunning) || mRebasingLoop || mInLayout
+                || !(mAdapter instanceof LoopPagerAdapterWrapper)) {
+            return false;
+        }
+        final LoopPagerAdapterWrapper loopAdapter = (LoopPagerAdapterWrapper) mAdapter;
+        final int realCount = loopAdapter.getRealCount();
+        final int count = mAdapter.getCount();
+        final int width = getClientWidth();
+        if (loopAdapter.isVirtualCount() || realCount < 2 || width <= 0 || count != mExpectedAdapterCount) {
+            return false;
+        }
+        final CoolViewPager.ItemInfo current = infoForCurrentScrollPosition();
+        final int shift;
+        if (current.position < loopAdapter.getRealFirstPosition()) {
+            shift = realCount;
+        } else if (current.position > loopAdapter.getRealLastPosition()) {
+            shift = -realCount;
+        } else {
+            return false;
+        }
+        if (mCurItem + shift < 0 || mCurItem + shift >= count) {
+            //目标页面在另一侧,平移后会越界,等滑动到目标页面再处理
+            return false;
+        }
+        //一个周期的偏移量:所有真实页面的宽度及间距之和
+        final float marginOffset = (float) mPageMargin / width;
+        final float period;
+        if (mPageOffsetIndex != null && !mPageOffsetIndex.needsRebuild(count)) {
+            period = mPageOffsetIndex.offsetBetween(loopAdapter.getRealFirstPosition(),
+                    loopAdapter.getRealLastPosition() + 1, marginOffset);
+        } else {
+            float sum = 0;
+            for (int i = loopAdapter.getRealFirstPosition(); i <= loopAdapter.getRealLastPosition(); i++) {
+                sum += mAdapter.getPageWidth(i) + marginOffset;
+            }
+            period = sum;
+        }
+        final float offsetShift = shift > 0 ? period : -period;
+        final int scrollShift = (int) (width * (current.offset + offsetShift)) - (int) (width * current.offset);
+
+        mRebasingLoop = true;
+        //平移后位置越界的页面直接销毁
+        boolean updating = false;
+        for (int i = mItems.size() - 1; i >= 0; i--) {
+            final CoolViewPager.ItemInfo ii = mItems.get(i);
+            final int newPosition = ii.position + shift;
+            if (newPosition < 0 || newPosition >= count) {
+                if (!updating) {
+                    mAdapter.startUpdate(this);
+                    updating = true;
+                }
+                removeItemAt(i);
+                mAdapter.destroyItem(this, ii.position, ii.object);
+                recycleItemInfo(ii);
+            }
+        }
+        if (updating) {
+            mAdapter.finishUpdate(this);
+        }
+        for (int i = 0; i < mItems.size(); i++) {
+            final CoolViewPager.ItemInfo ii = mItems.get(i);
+            ii.position += shift;
+            ii.offset += offsetShift;
+            loopAdapter.onItemPositionChanged(ii.object, ii.position);
+        }
+        rebuildPositionIndex();
+        mCurItem += shift;
+        for (int i = 0; i < getChildCount(); i++) {
+            final View child = getChildAt(i);
+            final CoolViewPager.LayoutParams lp = (CoolViewPager.LayoutParams) child.getLayoutParams();
+            if (lp.isDecor) {
+                continue;
+            }
+            final CoolViewPager.ItemInfo ii = infoForChild(child);
+            if (ii != null) {
+                lp.position = ii.position;
+                child.offsetLeftAndRight((int) (width * ii.offset) - (int) (width * (ii.offset - offsetShift)));
+            }
+        }
+        if (!mItems.isEmpty()) {
+            final CoolViewPager.ItemInfo first = mItems.get(0);
+            final CoolViewPager.ItemInfo last = mItems.get(mItems.size() - 1);
+            mFirstOffset = first.position == 0 ? first.offset : -Float.MAX_VALUE;
+            mLastOffset = last.position == count - 1 ? last.offset + last.widthFactor - 1 : Float.MAX_VALUE;
+        }
+        if (!mScroller.isFinished()) {
+            mScrollerShift += scrollShift;
+        }
+        scrollTo(getScrollX() + scrollShift, getScrollY());
+        //补齐平移后当前页另一侧的页面;手指抬起后的惯性滑动期间会推迟到滑动结束
+        populate();
+        mRebasingLoop = false;
+        return true;
+    }
+
     @Override
     public int getChildCount() {
         return super.getChildCount();
@@ -2267,20 +3672,64 @@ public class CoolViewPager extends ViewGroup implements ICoolViewPagerFeature {
 
         dispatchOnPageScrolled(position, offset, offsetPixels);
 
+        transformPages();
+
+        mCalledSuper = true;
+    }
+
+    /**
+     * 设置是否跳过可见范围以外页面的PageTransformer调用.
+     * 开启时(默认),页面位置离开[-1,1](含左右内边距露出的部分)时以边界位置变换一次,之后不再调用,直到重新进入该范围;
+     * PageTransformer需要对所有页面逐帧变换时应关闭
+     *
+     * @param cullPageTransforms
+     */
+    public void setPageTransformerCulling(boolean cullPageTransforms) {
+        if (this.mCullPageTransforms != cullPageTransforms) {
+            this.mCullPageTransforms = cullPageTransforms;
+            resetCulledPageTransforms();
+        }
+    }
+
+    public boolean isPageTransformerCulling() {
+        return this.mCullPageTransforms;
+    }
+
+    private void resetCulledPageTransforms() {
+        for (int i = 0; i < getChildCount(); i++) {
+            ((CoolViewPager.LayoutParams) getChildAt(i).getLayoutParams()).transformCulled = false;
+        }
+    }
+
+    /**
+     * 以当前滚动位置对所有页面执行PageTransformer
+     */
+    private void transformPages() {
         if (mPageTransformer != null) {
             final int scrollX = getScrollX();
+            final int clientWidth = getClientWidth();
+            //内边距露出的部分也在可见范围内
+            final float maxPos = 1f + (float) (getPaddingLeft() + getPaddingRight()) / clientWidth;
             final int childCount = getChildCount();
             for (int i = 0; i < childCount; i++) {
                 final View child = getChildAt(i);
                 final CoolViewPager.LayoutParams lp = (CoolViewPager.LayoutParams) child.getLayoutParams();
 
                 if (lp.isDecor) continue;
-                final float transformPos = (float) (child.getLeft() - scrollX) / getClientWidth();
+                float transformPos = (float) (child.getLeft() - scrollX) / clientWidth;
+                if (mCullPageTransforms) {
+                    if (transformPos < -1f || transformPos > maxPos) {
+                        if (lp.transformCulled) continue;
+                        //刚离开可见范围,以边界位置变换最后一次
+                        lp.transformCulled = true;
+                        transformPos = transformPos < -1f ? -1f : maxPos;
+                    } else {
+                        lp.transformCulled = false;
+                    }
+                }
                 mPageTransformer.transformPage(child, transformPos);
             }
         }
-
-        mCalledSuper = true;
     }
 
     private void dispatchOnPageScrolled(int position, float offset, int offsetPixels) {
@@ -2301,6 +3750,8 @@ public class CoolViewPager extends ViewGroup implements ICoolViewPagerFeature {
     }
 
     private void dispatchOnPageSelected(int position) {
+        mPrewarmItem = -1;
+        updateDwellTime(position);
         if (mOnPageChangeListener != null) {
             mOnPageChangeListener.onPageSelected(position);
         }
@@ -2344,7 +3795,7 @@ public class CoolViewPager extends ViewGroup implements ICoolViewPagerFeature {
                 mScroller.abortAnimation();
                 int oldX = getScrollX();
                 int oldY = getScrollY();
-                int x = mScroller.getCurrX();
+                int x = mScroller.getCurrX() + mScrollerShift;
                 int y = mScroller.getCurrY();
                 if (oldX != x || oldY != y) {
                     scrollTo(x, y);
@@ -2408,6 +3859,9 @@ public class CoolViewPager extends ViewGroup implements ICoolViewPagerFeature {
         if (mScrollMode == ScrollMode.VERTICAL) {
             swapTouchEvent(ev);
         }
+        if (ev.getActionMasked() == MotionEvent.ACTION_DOWN) {
+            pauseAutoScrollForTouch();
+        }
         /*
          * This method JUST determines whether we want to intercept the motion.
          * If we return true, onMotionEvent will be called and we do the actual
@@ -2419,7 +3873,7 @@ public class CoolViewPager extends ViewGroup implements ICoolViewPagerFeature {
         // Always take care of the touch gesture being complete.
         if (action == MotionEvent.ACTION_CANCEL || action == MotionEvent.ACTION_UP) {
             // Release the drag.
-            if (DEBUG) Log.v(TAG, "Intercept done!");
+            if (sDebug) Log.v(TAG, "Intercept done!");
             //重置一些变量
             resetTouch();
             /**
@@ -2438,7 +3892,7 @@ public class CoolViewPager extends ViewGroup implements ICoolViewPagerFeature {
         if (action != MotionEvent.ACTION_DOWN) {
             //如果在拖拽页面就拦截
             if (mIsBeingDragged) {
-                if (DEBUG) Log.v(TAG, "Intercept returning true!");
+                if (sDebug) Log.v(TAG, "Intercept returning true!");
                 /**
                  * 2:如果滑动方向是垂直方向,则将1:置换过的X、Y坐标重置为原始值
                  */
@@ -2449,7 +3903,7 @@ public class CoolViewPager extends ViewGroup implements ICoolViewPagerFeature {
             }
             //如果不允许拖拽页面就  放过一切触摸事件
             if (mIsUnableToDrag) {
-                if (DEBUG) Log.v(TAG, "Intercept returning false!");
+                if (sDebug) Log.v(TAG, "Intercept returning false!");
                 /**
                  * 2:如果滑动方向是垂直方向,则将1:置换过的X、Y坐标重置为原始值
                  */
@@ -2501,7 +3955,7 @@ public class CoolViewPager extends ViewGroup implements ICoolViewPagerFeature {
                     mIsBeingDragged = false;
                 }
 
-                if (DEBUG) {
+                if (sDebug) {
                     Log.v(TAG, "Down at " + mLastMotionX + "," + mLastMotionY
                             + " mIsBeingDragged=" + mIsBeingDragged
                             + "mIsUnableToDrag=" + mIsUnableToDrag);
@@ -2534,7 +3988,7 @@ public class CoolViewPager extends ViewGroup implements ICoolViewPagerFeature {
                 final float y = ev.getY(pointerIndex);
                 //TODO 为什么不是mLastMotionY而是mInitialMotionY
                 final float yDiff = Math.abs(y - mInitialMotionY);
-                if (DEBUG) Log.v(TAG, "Moved x to " + x + "," + y + " diff=" + xDiff + "," + yDiff);
+                if (sDebug) Log.v(TAG, "Moved x to " + x + "," + y + " diff=" + xDiff + "," + yDiff);
 
                 //手指不在页面之间的边缘且页面可以滑动
                 if (dx != 0 && !isGutterDrag(mLastMotionX, dx)
@@ -2553,7 +4007,7 @@ public class CoolViewPager extends ViewGroup implements ICoolViewPagerFeature {
                 }
                 //x移动的距离大于最小距离，且斜率小于0.5，则认为是水平方向上的移动
                 if (xDiff > mTouchSlop && xDiff * 0.5f > yDiff) {
-                    if (DEBUG) Log.v(TAG, "Starting drag!");
+                    if (sDebug) Log.v(TAG, "Starting drag!");
                     mIsBeingDragged = true;
                     requestParentDisallowInterceptTouchEvent(true);
                     setScrollState(SCROLL_STATE_DRAGGING);
@@ -2567,7 +4021,7 @@ public class CoolViewPager extends ViewGroup implements ICoolViewPagerFeature {
                     // direction to be counted as a drag...  abort
                     // any attempt to drag horizontally, to work correctly
                     // with children that have scrolling containers.
-                    if (DEBUG) Log.v(TAG, "Starting unable to drag!");
+                    if (sDebug) Log.v(TAG, "Starting unable to drag!");
                     mIsUnableToDrag = true;
                 }
                 if (mIsBeingDragged) {
@@ -2609,6 +4063,9 @@ public class CoolViewPager extends ViewGroup implements ICoolViewPagerFeature {
         if (mScrollMode == ScrollMode.VERTICAL) {
             swapTouchEvent(ev);
         }
+        if (ev.getActionMasked() == MotionEvent.ACTION_DOWN) {
+            pauseAutoScrollForTouch();
+        }
 
         //如果此时正在模拟一个假的拖动，触摸事件就消费掉
         if (mFakeDragging) {
@@ -2675,12 +4132,12 @@ public class CoolViewPager extends ViewGroup implements ICoolViewPagerFeature {
                     final float xDiff = Math.abs(x - mLastMotionX);
                     final float y = ev.getY(pointerIndex);
                     final float yDiff = Math.abs(y - mLastMotionY);
-                    if (DEBUG) {
+                    if (sDebug) {
                         Log.v(TAG, "Moved x to " + x + "," + y + " diff=" + xDiff + "," + yDiff);
                     }
                     //如果滑动的斜率小于1
                     if (xDiff > mTouchSlop && xDiff > yDiff) {
-                        if (DEBUG) Log.v(TAG, "Starting drag!");
+                        if (sDebug) Log.v(TAG, "Starting drag!");
                         //开始滑动了
                         mIsBeingDragged = true;
                         //请求父布局不再拦截触摸事件
@@ -2820,6 +4277,11 @@ public class CoolViewPager extends ViewGroup implements ICoolViewPagerFeature {
             rightAbsolute = false;
             rightBound = lastItem.offset * width;
         }
+        //无缝循环时首尾辅助页不是真正的边界,到达后会在pageScrolled中平移,不绘制EdgeEffect
+        if (mSeamlessLoop && mInfiniteLoop) {
+            leftAbsolute = false;
+            rightAbsolute = false;
+        }
 
         //如果滑动到达边界，那需要执行边界禁止滑动效果
         if (scrollX < leftBound) {
@@ -3683,6 +5145,16 @@ public class CoolViewPager extends ViewGroup implements ICoolViewPagerFeature {
          */
         int childIndex;
 
+        /**
+         * ItemInfo this view was last matched to; only valid while itemInfo.child is this view
+         */
+        ItemInfo itemInfo;
+
+        /**
+         * 页面在可见范围以外,已以边界位置执行过最后一次PageTransformer
+         */
+        boolean transformCulled;
+
         public LayoutParams() {
             super(MATCH_PARENT, MATCH_PARENT);
         }
@@ -3735,19 +5207,27 @@ public class CoolViewPager extends ViewGroup implements ICoolViewPagerFeature {
 
         @Override
         public void onPageScrollStateChanged(int state) {
-            if (mInfiniteLoop) {
+            //虚拟数量模式下只有滚动到最首/最尾页时才需要跳回中间
+            if (mInfiniteLoop && (!mSeamlessLoop || mLoopMode == LoopMode.VIRTUAL_COUNT)) {
                 int position = getCurrentItem();
-                if (state == SCROLL_STATE_IDLE && (position == 0 || position == mAdapter.getCount() - 1)) {
+                LoopPagerAdapterWrapper loopAdapter = (LoopPagerAdapterWrapper) mAdapter;
+                boolean outOfRealRange = loopAdapter.isVirtualCount()
+                        ? position == 0 || position == mAdapter.getCount() - 1
+                        : loopAdapter.isGhostPosition(position);
+                if (state == SCROLL_STATE_IDLE && outOfRealRange) {
                     int realPosition = ((LoopPagerAdapterWrapper) mAdapter).toRealPosition(position);
                     int realItem = ((LoopPagerAdapterWrapper) mAdapter).toInnerPosition(realPosition);
 //                    Log.e("Jet","onPageScrollStateChanged:setCurrentItem:"+realItem);
                     setCurrentItem(realItem, false);
                     if (mScrollMode == ScrollMode.VERTICAL) {
-                        Object item = mAdapter.instantiateItem(CoolViewPager.this, realItem);
-                        if (item instanceof View) {
-                            View currView = (View) item;
-                            currView.setTranslationX(0f);
-                            currView.setTranslationY(0f);
+                        //直接复位当前页,不再额外调用instantiateItem,否则该页面的引用计数无法归零,永远不会被销毁
+                        for (int i = 0; i < getChildCount(); i++) {
+                            final View child = getChildAt(i);
+                            final ItemInfo ii = infoForChild(child);
+                            if (ii != null && ii.position == realItem) {
+                                child.setTranslationX(0f);
+                                child.setTranslationY(0f);
+                            }
                         }
                     }
                 }
@@ -3762,55 +5242,103 @@ public class CoolViewPager extends ViewGroup implements ICoolViewPagerFeature {
 
     @Override
     public boolean dispatchTouchEvent(MotionEvent ev) {
-        if (timer != null) {
-            final int action = ev.getAction();
-            if (action == MotionEvent.ACTION_DOWN) {
-                stopTimer();
-            }
-            if (action == MotionEvent.ACTION_UP || action == MotionEvent.ACTION_CANCEL) {
-                checkAndStartTimer();
+        final int touchAction = ev.getActionMasked();
+        if (touchAction == MotionEvent.ACTION_UP || touchAction == MotionEvent.ACTION_CANCEL) {
+            mHoldBehindPage = false;
+        }
+        if (mTouching && (touchAction == MotionEvent.ACTION_UP || touchAction == MotionEvent.ACTION_CANCEL)) {
+            //子View调用requestDisallowInterceptTouchEvent后onInterceptTouchEvent收不到UP,因此在这里处理
+            mTouching = false;
+            if (mScrollState == SCROLL_STATE_IDLE) {
+                resumeAutoScrollAfterTouch();
             }
         }
         return super.dispatchTouchEvent(ev);
     }
 
+    /**
+     * 手指按下时停止自动滚动,手指抬起且页面停止滑动后再恢复
+     */
+    private void pauseAutoScrollForTouch() {
+        mTouching = true;
+        mResumeAutoScrollAfterSettle = true;
+        stopTimer();
+    }
+
+    private void resumeAutoScrollAfterTouch() {
+        mResumeAutoScrollAfterSettle = false;
+        stopTimer();
+        if (timer != null && mAutoScrollResumeDelay >= 0) {
+            timer.remaining = mAutoScrollResumeDelay;
+        }
+        checkAndStartTimer();
+    }
+
     @Override
     protected void onAttachedToWindow() {
         super.onAttachedToWindow();
+        AutoScrollScheduler.getInstance().subscribe(this);
+        //detach期间移除了恢复检查,重新计时
+        scheduleMemoryRecoverCheck();
         mFirstLayout = true;
-        checkAndStartTimer();
+        mAttachedToWindow = true;
+        mTemporarilyDetached = false;
+        mWindowVisible = getWindowVisibility() == VISIBLE;
+        //只在窗口失去焦点(例如弹出Dialog)时暂停,从未获得焦点的窗口(例如不可获取焦点的PopupWindow)仍然自动滚动
+        mHasWindowFocus = true;
+        updateTimerState();
     }
 
     @Override
     protected void onDetachedFromWindow() {
         removeCallbacks(mEndScrollRunnable);
+        removeCallbacks(mMemoryRecoverRunnable);
         // To be on the safe side, abort the scroller
         if ((mScroller != null) && !mScroller.isFinished()) {
             mScroller.abortAnimation();
         }
+        if (mFrameBudgetMonitor != null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            mFrameBudgetMonitor.stop();
+        }
         super.onDetachedFromWindow();
-        stopTimer();
+        AutoScrollScheduler.getInstance().unsubscribe(this);
+        mAttachedToWindow = false;
+        //暂停后从调度器中移除,调度器不会再持有当前实例
+        pauseTimer();
     }
 
     @Override
     protected void onVisibilityChanged(@NonNull View changedView, int visibility) {
         super.onVisibilityChanged(changedView, visibility);
-        if (visibility == VISIBLE) {
-            checkAndStartTimer();
-        } else {
-            stopTimer();
-        }
+        //changedView可能是父View,通过isShown()综合判断
+        updateTimerState();
+    }
+
+    @Override
+    protected void onWindowVisibilityChanged(int visibility) {
+        super.onWindowVisibilityChanged(visibility);
+        mWindowVisible = visibility == VISIBLE;
+        updateTimerState();
+    }
+
+    @Override
+    public void onWindowFocusChanged(boolean hasWindowFocus) {
+        super.onWindowFocusChanged(hasWindowFocus);
+        mHasWindowFocus = hasWindowFocus;
+        updateTimerState();
     }
 
     @Override
     public void onStartTemporaryDetach() {
         super.onStartTemporaryDetach();
-        stopTimer();
+        mTemporarilyDetached = true;
+        pauseTimer();
     }
 
     @Override
     public void onFinishTemporaryDetach() {
         super.onFinishTemporaryDetach();
-        checkAndStartTimer();
+        mTemporarilyDetached = false;
+        updateTimerState();
     }
 }
\ No newline at end of file
@@ -0,0 +1,90 @@
+package com.huanhailiuxin.coolviewpager;
+
+import android.os.Build;
+import android.support.annotation.RequiresApi;
+import android.view.Choreographer;
+
+/**
+ * 统计一段动画期间的帧数及丢帧数
+ *
+ * <p>
+ * 通过Choreographer的帧回调记录相邻两帧的时间差,超过一个刷新周期的部分按周期数计为丢帧.
+ * Choreographer在API 16才提供,调用方需先检查系统版本.
+ * 只在主线程中使用.
+ * </p>
+ */
+@RequiresApi(Build.VERSION_CODES.JELLY_BEAN)
+final class FrameBudgetMonitor {
+    private long mFrameIntervalNanos;
+    private long mLastFrameTimeNanos;
+    private int mFrames;
+    private int mDroppedFrames;
+    private boolean mRunning;
+    private Choreographer.FrameCallback mFrameCallback;
+
+    /**
+     * 开始统计,之前的统计结果会被清空
+     *
+     * @param frameIntervalNanos 屏幕刷新周期
+     */
+    void start(long frameIntervalNanos) {
+        mFrames = 0;
+        mDroppedFrames = 0;
+        mLastFrameTimeNanos = 0;
+        if (frameIntervalNanos <= 0) {
+            return;
+        }
+        mFrameIntervalNanos = frameIntervalNanos;
+        if (mFrameCallback == null) {
+            mFrameCallback = new Choreographer.FrameCallback() {
+                @Override
+                public void doFrame(long frameTimeNanos) {
+                    onFrame(frameTimeNanos);
+                }
+            };
+        }
+        if (!mRunning) {
+            mRunning = true;
+            Choreographer.getInstance().postFrameCallback(mFrameCallback);
+        }
+    }
+
+    void stop() {
+        if (mRunning) {
+            mRunning = false;
+            Choreographer.getInstance().removeFrameCallback(mFrameCallback);
+        }
+    }
+
+    boolean isRunning() {
+        return mRunning;
+    }
+
+    /**
+     * @return 已统计的帧数,不含丢掉的帧
+     */
+    int getFrames() {
+        return mFrames;
+    }
+
+    int getDroppedFrames() {
+        return mDroppedFrames;
+    }
+
+    private void onFrame(long frameTimeNanos) {
+        if (!mRunning) {
+            return;
+        }
+        if (mLastFrameTimeNanos > 0) {
+            final long delta = frameTimeNanos - mLastFrameTimeNanos;
+            //四舍五入到刷新周期的整数倍,去掉正常的一帧即为丢掉的帧数
+            final long periods = (delta + mFrameIntervalNanos / 2) / mFrameIntervalNanos;
+            if (periods > 1) {
+                mDroppedFrames += (int) (periods - 1);
+            }
+            mFrames++;
+        }
+        mLastFrameTimeNanos = frameTimeNanos;
+        Choreographer.getInstance().postFrameCallback(mFrameCallback);
+    }
+}
@@ -27,6 +27,15 @@ interface ICoolViewPagerFeature {
      */
     void setAutoScroll(boolean autoScroll, int... intervalInMillis);
 
+    /**
+     * 设置自动滚动时是否以跑马灯方式匀速连续滚动,并设置每秒滚动的距离(dp).
+     * 非循环滚动时滚动到最后一页的边缘后停止;API 16以下仍逐页滚动
+     *
+     * @param marquee
+     * @param speedInDpPerSecond
+     */
+    void setMarquee(boolean marquee, int... speedInDpPerSecond);
+
 
 
     /**
@@ -48,6 +57,20 @@ interface ICoolViewPagerFeature {
      */
     void setInfiniteLoop(boolean infiniteLoop);
 
+    /**
+     * 设置循环滚动时是否无缝跨越首尾页
+     *
+     * @param seamlessLoop
+     */
+    void setSeamlessLoop(boolean seamlessLoop);
+
+    /**
+     * 设置循环滚动方式
+     *
+     * @param loopMode
+     */
+    void setLoopMode(CoolViewPager.LoopMode loopMode);
+
     /**
      * 设置是否绘制EdgeEffect
      *
@@ -0,0 +1,140 @@
+package com.huanhailiuxin.coolviewpager;
+
+import android.support.v4.view.PagerAdapter;
+
+import java.util.Arrays;
+
+/**
+ * 基于树状数组(Fenwick tree)的页面宽度前缀和索引
+ *
+ * <p>
+ * {@link CoolViewPager}在calculatePageOffsets中需要从旧的当前页逐页累加{@link PagerAdapter#getPageWidth(int)},
+ * 跳转距离为d时需要O(d)次Adapter调用.开启该索引后,任意两页之间的偏移量均可在O(log n)内得到.
+ * 索引在Adapter数据变化后标记为失效,下次使用时以O(n)重建.
+ * </p>
+ * <p>
+ * 页面宽度按周期重复时(例如{@link com.huanhailiuxin.coolviewpager.adapter.LoopPagerAdapterWrapper}的虚拟数量模式),
+ * 只为一个周期建立索引,占用空间及重建耗时与逻辑页面数无关.
+ * </p>
+ */
+final class PageOffsetIndex {
+    //树状数组,下标从1开始
+    private double[] mTree = new double[1];
+    //每页的宽度,用于单点更新时计算差值
+    private float[] mWidths = new float[0];
+    //实际建立索引的页面数,即一个周期的长度
+    private int mCount;
+    //逻辑页面数,周期模式下为mCount的整数倍
+    private int mVirtualCount;
+    //一个周期内所有页面的宽度之和
+    private double mPeriodWidth;
+    private boolean mDirty = true;
+
+    void invalidate() {
+        mDirty = true;
+    }
+
+    boolean needsRebuild(int count) {
+        return mDirty || mVirtualCount != count;
+    }
+
+    int getCount() {
+        return mVirtualCount;
+    }
+
+    /**
+     * 根据Adapter当前数据线性重建索引
+     *
+     * @param adapter
+     */
+    void rebuild(PagerAdapter adapter) {
+        rebuild(adapter, adapter.getCount());
+    }
+
+    /**
+     * 页面宽度以period为周期重复时,只读取前period页的宽度重建索引
+     *
+     * @param adapter
+     * @param period
+     */
+    void rebuild(PagerAdapter adapter, int period) {
+        final int n = Math.min(period, adapter.getCount());
+        if (mTree.length < n + 1) {
+            mTree = new double[n + 1];
+            mWidths = new float[n];
+        } else {
+            Arrays.fill(mTree, 0, n + 1, 0);
+        }
+        for (int i = 1; i <= n; i++) {
+            final float width = adapter.getPageWidth(i - 1);
+            mWidths[i - 1] = width;
+            mTree[i] += width;
+            final int parent = i + (i & -i);
+            if (parent <= n) {
+                mTree[parent] += mTree[i];
+            }
+        }
+        mCount = n;
+        mVirtualCount = adapter.getCount();
+        mPeriodWidth = fenwickSum(n);
+        mDirty = false;
+    }
+
+    /**
+     * 更新单页宽度
+     *
+     * @param position
+     * @param width
+     */
+    void setPageWidth(int position, float width) {
+        if (mDirty || position < 0 || position >= mVirtualCount || mCount == 0) {
+            return;
+        }
+        position %= mCount;
+        final double delta = width - mWidths[position];
+        if (delta == 0) {
+            return;
+        }
+        mWidths[position] = width;
+        mPeriodWidth += delta;
+        for (int i = position + 1; i <= mCount; i += i & -i) {
+            mTree[i] += delta;
+        }
+    }
+
+    float getPageWidth(int position) {
+        return mWidths[position % mCount];
+    }
+
+    /**
+     * @param position
+     * @return [0, position)范围内所有页面宽度之和
+     */
+    double prefixSum(int position) {
+        if (mCount == 0) {
+            return 0;
+        }
+        final int p = Math.min(Math.max(position, 0), mVirtualCount);
+        return (p / mCount) * mPeriodWidth + fenwickSum(p % mCount);
+    }
+
+    private double fenwickSum(int position) {
+        double sum = 0;
+        for (int i = position; i > 0; i -= i & -i) {
+            sum += mTree[i];
+        }
+        return sum;
+    }
+
+    /**
+     * 计算页面to相对页面from的偏移量(以CoolViewPager可视区域宽度为单位),to在from左侧时为负数
+     *
+     * @param from
+     * @param to
+     * @param marginOffset 页面间距与可视区域宽度的比例
+     * @return
+     */
+    float offsetBetween(int from, int to, float marginOffset) {
+        return (float) (prefixSum(to) - prefixSum(from)) + (to - from) * marginOffset;
+    }
+}
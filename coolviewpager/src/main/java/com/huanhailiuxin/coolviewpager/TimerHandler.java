@@ -26,13 +26,14 @@
 
 package com.huanhailiuxin.coolviewpager;
 
-import android.os.Handler;
-import android.os.Message;
+import android.os.SystemClock;
 
 /**
  * Created by mikeafc on 15/11/25.
+ *
+ * 单个CoolViewPager的自动滚动计时状态,实际的定时由{@link AutoScrollScheduler}统一调度
  */
-class TimerHandler extends Handler {
+class TimerHandler {
 
     interface TimerHandlerListener {
         void callBack();
@@ -40,28 +41,81 @@ class TimerHandler extends Handler {
 
     long interval;
     boolean isStopped = true;
+    //下一次回调的时间(SystemClock.uptimeMillis)
+    long nextTickTime;
+    //暂停时距离下一次回调剩余的时间,<0表示没有暂停中的计时
+    long remaining = -1;
+    //在下一次回调前多久预热目标页面,<=0表示不预热
+    long prewarmLead;
+    //本次间隔内是否已经预热过
+    boolean prewarmed;
     TimerHandlerListener listener;
     CoolViewPager coolViewPager;
 
-    static final int MSG_TIMER_ID = 87108;
-
     TimerHandler(CoolViewPager coolViewPager, TimerHandlerListener listener, long interval) {
         this.coolViewPager = coolViewPager;
         this.listener = listener;
         this.interval = interval;
     }
 
-    @Override
-    public void handleMessage(Message msg) {
-        if (MSG_TIMER_ID == msg.what) {
-            if (listener != null) {
-                listener.callBack();
+    /**
+     * 到期时由{@link AutoScrollScheduler}回调
+     */
+    void onTick() {
+        if (listener != null && coolViewPager != null) {
+            //预热的页面内容还没有准备好时,稍后再滚动
+            final long deferral = coolViewPager.getAutoScrollDeferral();
+            if (deferral > 0) {
+                defer(deferral);
+                return;
             }
+        }
+        if (listener != null) {
+            listener.callBack();
+        }
+        if (!isStopped) {
             tick();
         }
     }
 
+    /**
+     * 预热时间到达时由{@link AutoScrollScheduler}回调
+     */
+    void onPrewarm() {
+        prewarmed = true;
+        if (listener != null && coolViewPager != null) {
+            coolViewPager.prewarmAutoScrollTarget();
+        }
+    }
+
+    /**
+     * @return 调度器需要唤醒的时间:未预热时为预热时间,否则为下一次回调的时间
+     */
+    long getWakeUpTime() {
+        return prewarmed || prewarmLead <= 0 ? nextTickTime : nextTickTime - prewarmLead;
+    }
+
     public void tick() {
-        sendEmptyMessageDelayed(TimerHandler.MSG_TIMER_ID, interval);
+        tick(interval);
+    }
+
+    void tick(long delay) {
+        nextTickTime = SystemClock.uptimeMillis() + delay;
+        prewarmed = false;
+        AutoScrollScheduler.getInstance().schedule(this);
+    }
+
+    /**
+     * 推迟本次回调,不重新预热
+     *
+     * @param delay
+     */
+    void defer(long delay) {
+        nextTickTime = SystemClock.uptimeMillis() + delay;
+        AutoScrollScheduler.getInstance().schedule(this);
+    }
+
+    void cancel() {
+        AutoScrollScheduler.getInstance().cancel(this);
     }
 }
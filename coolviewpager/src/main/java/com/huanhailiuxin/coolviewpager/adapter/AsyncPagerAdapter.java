@@ -0,0 +1,208 @@
+package com.huanhailiuxin.coolviewpager.adapter;
+
+import android.content.Context;
+import android.os.AsyncTask;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.MainThread;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.WorkerThread;
+import android.support.v4.view.PagerAdapter;
+import android.util.Log;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+
+/**
+ * 异步实例化页面的PagerAdapter
+ *
+ * <p>
+ * CoolViewPager在populate()中同步调用{@link PagerAdapter#instantiateItem(ViewGroup, int)},
+ * 页面较重时(复杂布局、解码图片)会卡住滑动动画.本类将页面分为两步:
+ * 1:主线程中通过{@link #onCreatePlaceholder(ViewGroup, int)}创建一个轻量的占位View,立即返回;
+ * 2:在后台Executor中执行{@link #onPrepareContent(Context, int)}准备页面内容,完成后在主线程通过
+ * {@link #onBindContent(ViewGroup, int, Object)}替换掉占位View.
+ * </p>
+ * <p>
+ * 页面在内容准备好之前被移出缓存窗口时(populate中destroyItem,或notifyDataSetChanged后getItemPosition返回POSITION_NONE),
+ * 后台任务会被取消,结果也不会再回到主线程.
+ * </p>
+ *
+ * @param <T> 后台准备好的页面内容类型,例如解码后的Bitmap或inflate好的View
+ */
+public abstract class AsyncPagerAdapter<T> extends PagerAdapter {
+    private static final String TAG = "AsyncPagerAdapter";
+
+    private final Executor mExecutor;
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+    public AsyncPagerAdapter() {
+        this(AsyncTask.THREAD_POOL_EXECUTOR);
+    }
+
+    /**
+     * @param executor 执行{@link #onPrepareContent(Context, int)}的Executor
+     */
+    public AsyncPagerAdapter(@NonNull Executor executor) {
+        this.mExecutor = executor;
+    }
+
+    /**
+     * 在主线程中创建占位View,应尽量轻量
+     *
+     * @param page     页面容器
+     * @param position 页面位置
+     * @return
+     */
+    @MainThread
+    @NonNull
+    protected abstract View onCreatePlaceholder(@NonNull ViewGroup page, int position);
+
+    /**
+     * 在后台线程中准备页面内容,不可访问已attach到界面上的View
+     *
+     * @param context  页面容器的Context
+     * @param position 页面位置
+     * @return
+     * @throws Exception 准备失败时抛出,会回调{@link #onPrepareFailed(ViewGroup, int, Exception)}
+     */
+    @WorkerThread
+    @NonNull
+    protected abstract T onPrepareContent(@NonNull Context context, int position) throws Exception;
+
+    /**
+     * 内容准备好后在主线程中回调,此时占位View已被移除.
+     * 返回的View如果还没有parent,会被添加到页面容器中
+     *
+     * @param page     页面容器
+     * @param position 页面位置
+     * @param content  {@link #onPrepareContent(Context, int)}的返回值
+     * @return
+     */
+    @MainThread
+    @Nullable
+    protected abstract View onBindContent(@NonNull ViewGroup page, int position, @NonNull T content);
+
+    /**
+     * 后台准备页面内容失败时在主线程中回调,默认保留占位View
+     *
+     * @param page
+     * @param position
+     * @param e
+     */
+    @MainThread
+    protected void onPrepareFailed(@NonNull ViewGroup page, int position, @NonNull Exception e) {
+        Log.w(TAG, "Failed to prepare page " + position, e);
+    }
+
+    /**
+     * 页面被销毁时在主线程中回调,可在此释放页面持有的资源
+     *
+     * @param page
+     * @param position
+     */
+    @MainThread
+    protected void onPageDestroyed(@NonNull ViewGroup page, int position) {
+    }
+
+    /**
+     * 页面内容是否已经准备好并替换掉了占位View
+     *
+     * @param object {@link #instantiateItem(ViewGroup, int)}的返回值
+     * @return
+     */
+    public boolean isPageReady(@NonNull Object object) {
+        return object instanceof AsyncPage && ((AsyncPage) object).mReady;
+    }
+
+    @Override
+    public boolean isViewFromObject(@NonNull View view, @NonNull Object object) {
+        return view == object;
+    }
+
+    @NonNull
+    @Override
+    public Object instantiateItem(@NonNull ViewGroup container, final int position) {
+        final AsyncPage page = new AsyncPage(container.getContext());
+        page.addView(onCreatePlaceholder(page, position));
+        container.addView(page);
+        final Context context = page.getContext();
+        final FutureTask<T> task = new FutureTask<T>(new Callable<T>() {
+            @Override
+            public T call() throws Exception {
+                return onPrepareContent(context, position);
+            }
+        }) {
+            @Override
+            protected void done() {
+                if (isCancelled()) {
+                    return;
+                }
+                final FutureTask<T> finished = this;
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        deliver(page, position, finished);
+                    }
+                });
+            }
+        };
+        page.mTask = task;
+        mExecutor.execute(task);
+        return page;
+    }
+
+    @Override
+    public void destroyItem(@NonNull ViewGroup container, int position, @NonNull Object object) {
+        final AsyncPage page = (AsyncPage) object;
+        if (page.mTask != null) {
+            page.mTask.cancel(true);
+            page.mTask = null;
+        }
+        container.removeView(page);
+        onPageDestroyed(page, position);
+    }
+
+    @MainThread
+    private void deliver(AsyncPage page, int position, FutureTask<T> task) {
+        //页面已被销毁或已重新发起任务,丢弃结果
+        if (page.mTask != task) {
+            return;
+        }
+        page.mTask = null;
+        final T content;
+        try {
+            content = task.get();
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            onPrepareFailed(page, position, cause instanceof Exception ? (Exception) cause : e);
+            return;
+        } catch (InterruptedException e) {
+            return;
+        }
+        page.removeAllViews();
+        final View view = onBindContent(page, position, content);
+        if (view != null && view.getParent() == null) {
+            page.addView(view);
+        }
+        page.mReady = true;
+    }
+
+    /**
+     * 页面容器,先展示占位View,内容准备好后替换
+     */
+    static final class AsyncPage extends FrameLayout {
+        FutureTask<?> mTask;
+        boolean mReady;
+
+        AsyncPage(Context context) {
+            super(context);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.huanhailiuxin.coolviewpager.adapter;
+
+import android.support.v4.view.PagerAdapter;
+
+/**
+ * 支持差量刷新的PagerAdapter需实现的接口
+ *
+ * <p>
+ * 默认情况下{@link PagerAdapterWrapper}及{@link LoopPagerAdapterWrapper}在数据变化后对所有页面返回{@link PagerAdapter#POSITION_NONE},
+ * 调用CoolViewPager#notifyDataSetChanged()会销毁并重建所有已创建的页面.
+ * 用户的PagerAdapter实现本接口后,包装类会记录每个页面创建时对应的数据项,数据变化后通过equals()在新数据中查找:
+ * 找到则返回其新位置,页面保留;找不到(数据项被删除或内容已变化)才返回{@link PagerAdapter#POSITION_NONE}重建该页面.
+ * </p>
+ */
+public interface DiffablePagerAdapter {
+    /**
+     * 获取指定位置的数据项,用于判断页面内容是否变化,需正确实现equals()及hashCode()
+     * <p>
+     * 包装类只保存返回对象的引用,不复制其内容:页面存活期间返回的对象不能被原地修改,
+     * 否则新旧数据永远相等,页面不会重建.数据可变时请返回不可变的值对象或内容的快照.
+     * </p>
+     *
+     * @param position
+     * @return
+     */
+    Object getItem(int position);
+}
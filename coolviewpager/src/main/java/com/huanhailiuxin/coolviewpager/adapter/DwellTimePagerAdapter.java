@@ -0,0 +1,22 @@
+package com.huanhailiuxin.coolviewpager.adapter;
+
+/**
+ * 为每个页面提供自动滚动停留时间的PagerAdapter需实现的接口
+ *
+ * <p>
+ * 开启自动滚动时,CoolViewPager在页面被选中时读取一次该页的停留时间,作为到下一次自动滚动的间隔,
+ * 不会在每一帧中调用.循环模式下position为用户Adapter中的实际位置.
+ * </p>
+ */
+public interface DwellTimePagerAdapter {
+    /**
+     * 使用CoolViewPager设置的自动滚动间隔
+     */
+    long DEFAULT_DWELL_TIME = 0;
+
+    /**
+     * @param position 页面在用户Adapter中的实际位置
+     * @return 该页面被选中后停留的时间(毫秒),小于等于0时使用自动滚动的时间间隔
+     */
+    long getDwellTime(int position);
+}
@@ -0,0 +1,184 @@
+package com.huanhailiuxin.coolviewpager.adapter;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.os.Build;
+import android.os.SystemClock;
+import android.view.View;
+import android.view.ViewTreeObserver;
+
+/**
+ * 循环滚动时用于辅助页的快照View
+ *
+ * <p>
+ * 辅助页对应的真实页面已经存在时,不再通过用户Adapter再实例化一份页面,
+ * 而是将真实页面绘制到一张Bitmap中,由本View直接绘制该Bitmap.
+ * 真实页面重新布局或更换后,在下一帧绘制前刷新快照;真实页面只是被invalidate时,最多每{@link #MIN_CAPTURE_INTERVAL}毫秒刷新一次.
+ * 真实页面被销毁后保留最后一次的快照作为占位,直到同一真实位置的页面重新实例化,期间{@link #isSnapshotReady()}返回false.
+ * Bitmap来自{@link SnapshotBitmapPool},总大小受其上限约束.
+ * </p>
+ */
+final class GhostPageView extends View {
+    //真实页面持续invalidate(例如播放动画)时,两次刷新快照的最小间隔
+    static final long MIN_CAPTURE_INTERVAL = 100; // ms
+
+    private final int mRealPosition;
+    private final SnapshotBitmapPool mBitmapPool;
+    private View mSource;
+    private Bitmap mSnapshot;
+    private Canvas mSnapshotCanvas;
+    private boolean mStale = true;
+    private long mLastCaptureTime;
+    private boolean mCapturePending;
+
+    private final ViewTreeObserver.OnPreDrawListener mPreDrawListener = new ViewTreeObserver.OnPreDrawListener() {
+        @Override
+        public boolean onPreDraw() {
+            if (mSource == null) {
+                return true;
+            }
+            if (mStale) {
+                capture();
+            } else if (isSourceDirty()) {
+                final long wait = mLastCaptureTime + MIN_CAPTURE_INTERVAL - SystemClock.uptimeMillis();
+                if (wait <= 0) {
+                    capture();
+                } else if (!mCapturePending) {
+                    //间隔内的变化合并到一次刷新,真实页面随后停止变化时也能刷新到最终内容
+                    mCapturePending = true;
+                    postDelayed(mCaptureRunnable, wait);
+                }
+            }
+            return true;
+        }
+    };
+
+    private final Runnable mCaptureRunnable = new Runnable() {
+        @Override
+        public void run() {
+            mCapturePending = false;
+            mStale = true;
+            invalidate();
+        }
+    };
+
+    private final OnLayoutChangeListener mSourceLayoutListener = new OnLayoutChangeListener() {
+        @Override
+        public void onLayoutChange(View v, int left, int top, int right, int bottom,
+                                   int oldLeft, int oldTop, int oldRight, int oldBottom) {
+            mStale = true;
+        }
+    };
+
+    GhostPageView(Context context, int realPosition, SnapshotBitmapPool bitmapPool) {
+        super(context);
+        this.mRealPosition = realPosition;
+        this.mBitmapPool = bitmapPool;
+    }
+
+    int getRealPosition() {
+        return mRealPosition;
+    }
+
+    /**
+     * 设置快照来源,为null时保留最后一次的快照作为占位;来源变化后原快照视为过期
+     *
+     * @param source 真实页面的View
+     */
+    void setSource(View source) {
+        if (mSource == source) {
+            return;
+        }
+        if (mSource != null) {
+            mSource.removeOnLayoutChangeListener(mSourceLayoutListener);
+        }
+        mSource = source;
+        mStale = true;
+        if (mSource != null) {
+            mSource.addOnLayoutChangeListener(mSourceLayoutListener);
+            invalidate();
+        }
+    }
+
+    /**
+     * @return 是否正在显示来源页面的最新快照;来源已销毁、尚未截取或分配不到Bitmap时返回false
+     */
+    boolean isSnapshotReady() {
+        return mSource != null && !mStale && mSnapshot != null;
+    }
+
+    View getSource() {
+        return mSource;
+    }
+
+    /**
+     * 页面被销毁时释放快照
+     */
+    void release() {
+        setSource(null);
+        removeCallbacks(mCaptureRunnable);
+        mCapturePending = false;
+        if (mSnapshot != null) {
+            mBitmapPool.release(mSnapshot);
+            mSnapshot = null;
+            mSnapshotCanvas = null;
+        }
+    }
+
+    private boolean isSourceDirty() {
+        //View.isDirty()在API 21才提供,更低版本只在来源重新布局时刷新
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP && mSource.isDirty();
+    }
+
+    private void capture() {
+        final int width = mSource.getWidth();
+        final int height = mSource.getHeight();
+        if (width <= 0 || height <= 0) {
+            return;
+        }
+        if (mSnapshot == null || mSnapshot.getWidth() != width || mSnapshot.getHeight() != height) {
+            if (mSnapshot != null) {
+                mBitmapPool.release(mSnapshot);
+                mSnapshotCanvas = null;
+            }
+            mSnapshot = mBitmapPool.acquire(width, height);
+            if (mSnapshot == null) {
+                //超过快照内存上限,保持过期状态,不显示内容
+                invalidate();
+                return;
+            }
+            mSnapshotCanvas = new Canvas(mSnapshot);
+        }
+        mSnapshot.eraseColor(Color.TRANSPARENT);
+        final int saveCount = mSnapshotCanvas.save();
+        mSnapshotCanvas.translate(-mSource.getScrollX(), -mSource.getScrollY());
+        mSource.draw(mSnapshotCanvas);
+        mSnapshotCanvas.restoreToCount(saveCount);
+        mStale = false;
+        mLastCaptureTime = SystemClock.uptimeMillis();
+        invalidate();
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        getViewTreeObserver().addOnPreDrawListener(mPreDrawListener);
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        getViewTreeObserver().removeOnPreDrawListener(mPreDrawListener);
+        removeCallbacks(mCaptureRunnable);
+        mCapturePending = false;
+        super.onDetachedFromWindow();
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        if (mSnapshot != null) {
+            canvas.drawBitmap(mSnapshot, 0, 0, null);
+        }
+    }
+}
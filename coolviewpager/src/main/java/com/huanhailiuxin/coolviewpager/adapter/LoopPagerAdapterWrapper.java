@@ -6,6 +6,9 @@ import android.util.SparseArray;
 import android.view.View;
 import android.view.ViewGroup;
 
+import java.util.IdentityHashMap;
+import java.util.Map;
+
 /**
  * 作者:幻海流心
  * GitHub:https://github.com/HuanHaiLiuXin
@@ -14,26 +17,140 @@ import android.view.ViewGroup;
  */
 
 public class LoopPagerAdapterWrapper extends PagerAdapter {
+    /**
+     * 虚拟数量模式下页面总数的上限,实际总数为真实页面数的整数倍
+     */
+    public static final int MAX_VIRTUAL_COUNT = 100000;
     private PagerAdapter mAdapter;
+    //虚拟数量模式:不使用首尾辅助页,而是报告一个很大的页面数,通过取模映射到真实位置,从中间开始滚动
+    private final boolean mVirtualCount;
+    //首尾各自的辅助页数,一屏可见多页时需要多个辅助页
+    private int mGhostCount = 1;
+    //辅助页是否与对应的真实页共用同一页面对象
+    private boolean mSharePages;
+    //同时被多个位置引用的页面对象个数
+    private int mSharedPageCount;
+    //对应真实页面已存在时,辅助页是否使用真实页面的快照
+    private boolean mSnapshotGhostPages;
+    //存活的快照辅助页
+    private final Map<GhostPageView, Boolean> mGhostPages = new IdentityHashMap<>();
+    //快照使用的Bitmap池,开启快照辅助页后创建
+    private SnapshotBitmapPool mSnapshotPool;
     private SparseArray mViewArray = new SparseArray();
+    //存活的页面对象及其引用计数.首尾辅助页与对应的真实页共用同一真实位置,
+    //用户Adapter可能为两者返回同一个对象,只有最后一个引用被销毁时才真正destroyItem
+    private final Map<Object, PageRef> mAlivePages = new IdentityHashMap<>();
+    //页面View到其引用信息的映射,用于常数时间内由CoolViewPager的子View找到真实位置
+    private final Map<View, PageRef> mPagesByView = new IdentityHashMap<>();
+    //用户Adapter有稳定ID或实现了DiffablePagerAdapter时不为null,此时按数据项差量刷新
+    private PageDiffHelper mDiffHelper;
+    //上一次及本次notifyDataSetChanged时的数据个数,用于识别首尾辅助页
+    private int mPreviousRealCount;
+    private int mKnownRealCount;
 
     public LoopPagerAdapterWrapper(PagerAdapter adapter){
+        this(adapter, false);
+    }
+
+    /**
+     * @param adapter
+     * @param virtualCount 是否使用虚拟数量模式
+     */
+    public LoopPagerAdapterWrapper(PagerAdapter adapter, boolean virtualCount){
         this.mAdapter = adapter;
+        this.mVirtualCount = virtualCount;
+        mDiffHelper = PageDiffHelper.create(adapter);
+        mKnownRealCount = mPreviousRealCount = adapter.getCount();
     }
 
     @Override
     public int getCount() {
-        return mAdapter.getCount() + 2;
+        if (mVirtualCount) {
+            return getRealCount() * getCycleCount();
+        }
+        return mAdapter.getCount() + 2 * mGhostCount;
     }
     public int getRealCount(){
         return mAdapter.getCount();
     }
+
+    /**
+     * 设置首尾各自的辅助页数,需要在设置给CoolViewPager之前调用
+     *
+     * @param ghostCount
+     */
+    public void setGhostCount(int ghostCount) {
+        this.mGhostCount = Math.max(1, ghostCount);
+    }
+
+    public int getGhostCount() {
+        return mVirtualCount ? 0 : mGhostCount;
+    }
+
+    /**
+     * 设置辅助页是否与对应的真实页共用同一页面对象.
+     * 开启后同一真实位置只会调用一次用户Adapter的instantiateItem,页面占用的内存与辅助页数无关;
+     * 只有两者不会同时出现在屏幕上(真实页面数大于一屏可见的页数)时才应开启
+     *
+     * @param sharePages
+     */
+    public void setSharePages(boolean sharePages) {
+        this.mSharePages = sharePages;
+    }
+
+    /**
+     * 设置辅助页对应的真实页面已存在时,是否绘制真实页面的快照,而不是再实例化一份页面.
+     * 快照在真实页面重新布局后刷新,真实页面持续invalidate时限制刷新频率;快照总大小受上限约束,超过时仍实例化页面
+     *
+     * @param snapshotGhostPages
+     */
+    public void setSnapshotGhostPages(boolean snapshotGhostPages) {
+        this.mSnapshotGhostPages = snapshotGhostPages;
+        if (snapshotGhostPages && mSnapshotPool == null) {
+            mSnapshotPool = new SnapshotBitmapPool(SnapshotBitmapPool.getDefaultMaxBytes());
+        } else if (!snapshotGhostPages && mSnapshotPool != null) {
+            mSnapshotPool.trim();
+        }
+    }
+
+    public boolean isSnapshotGhostPages() {
+        return mSnapshotGhostPages;
+    }
+
+    /**
+     * @return 是否有页面对象同时被多个位置引用,此时CoolViewPager需要决定页面布局在哪个位置
+     */
+    public boolean hasSharedPages() {
+        return mSharedPageCount > 0;
+    }
+
+    /**
+     * @param position
+     * @return position是否为首尾辅助页
+     */
+    public boolean isGhostPosition(int position) {
+        return !mVirtualCount && (position < getRealFirstPosition() || position > getRealLastPosition());
+    }
+    public boolean isVirtualCount() {
+        return mVirtualCount;
+    }
+
+    /**
+     * @return 虚拟数量模式下真实页面重复的次数
+     */
+    private int getCycleCount() {
+        int realCount = getRealCount();
+        return realCount == 0 ? 0 : Math.max(3, MAX_VIRTUAL_COUNT / realCount);
+    }
     public int toRealPosition(int position){
         int realCount = getRealCount();
         if(realCount == 0){
            return 0;
+        }else if (mVirtualCount) {
+            int realPosition = position % realCount;
+            return realPosition < 0 ? realPosition + realCount : realPosition;
         }else{
-            int realPosition = (position - 1)%realCount;
+            int realPosition = (position - mGhostCount)%realCount;
             if(realPosition < 0){
                 realPosition += realCount;
             }
@@ -41,11 +158,18 @@ public class LoopPagerAdapterWrapper extends PagerAdapter {
         }
     }
     public int toInnerPosition(int realPosition){
-        int position = realPosition + 1;
+        if (mVirtualCount) {
+            //从中间的周期开始,向前向后都可以滚动足够多的页数
+            return getCycleCount() / 2 * getRealCount() + realPosition;
+        }
+        int position = realPosition + mGhostCount;
         return position;
     }
     public int getRealFirstPosition(){
-        return 1;
+        if (mVirtualCount) {
+            return toInnerPosition(0);
+        }
+        return mGhostCount;
     }
     public int getRealLastPosition(){
         return getRealFirstPosition() + getRealCount() - 1;
@@ -56,6 +180,9 @@ public class LoopPagerAdapterWrapper extends PagerAdapter {
 
     @Override
     public boolean isViewFromObject(@NonNull View view, @NonNull Object object) {
+        if (object instanceof GhostPageView) {
+            return view == object;
+        }
         return mAdapter.isViewFromObject(view,object);
     }
 
@@ -63,34 +190,237 @@ public class LoopPagerAdapterWrapper extends PagerAdapter {
     @Override
     public Object instantiateItem(@NonNull ViewGroup container, int position) {
         int realPosition = toRealPosition(position);
+        if (mSharePages) {
+            PageRef shared = findAlivePage(realPosition);
+            if (shared != null) {
+                //辅助页直接复用真实页(或反之)已有的页面对象
+                if (++shared.refCount == 2) {
+                    mSharedPageCount++;
+                }
+                return shared.object;
+            }
+        }
+        if (mSnapshotGhostPages && isGhostPosition(position)) {
+            PageRef source = findAlivePage(realPosition);
+            if (source != null && source.view != null
+                    && mSnapshotPool.canAcquire(source.view.getWidth(), source.view.getHeight())) {
+                //真实页面已存在,辅助页只绘制其快照,不再实例化第二份页面;快照内存不足时仍实例化页面
+                GhostPageView ghost = new GhostPageView(container.getContext(), realPosition, mSnapshotPool);
+                ghost.setSource(source.view);
+                container.addView(ghost);
+                mGhostPages.put(ghost, Boolean.TRUE);
+                return ghost;
+            }
+        }
         Object item = mAdapter.instantiateItem(container, realPosition);
+        if (mDiffHelper != null) {
+            mDiffHelper.onInstantiate(item, position, realPosition);
+        }
+        PageRef ref = mAlivePages.get(item);
+        if (ref == null) {
+            ref = new PageRef();
+            ref.object = item;
+            mAlivePages.put(item, ref);
+        }
+        if (++ref.refCount == 2) {
+            mSharedPageCount++;
+        }
+        ref.realPosition = realPosition;
+        if (ref.view != null) {
+            mPagesByView.remove(ref.view);
+            ref.view = null;
+        }
         int childCount = container.getChildCount();
         for (int i = 0; i < childCount; i++) {
             View child = container.getChildAt(i);
             if (isViewFromObject(child, item)) {
+                ref.view = child;
+                mPagesByView.put(child, ref);
                 mViewArray.put(realPosition, child);
                 break;
             }
         }
+        if (ref.view != null && !mGhostPages.isEmpty()) {
+            //同一真实位置的页面重新实例化后,快照辅助页改为跟随新页面,原快照过期
+            for (GhostPageView ghost : mGhostPages.keySet()) {
+                if (ghost.getRealPosition() == realPosition && ghost.getSource() == null) {
+                    ghost.setSource(ref.view);
+                }
+            }
+        }
         return item;
     }
 
     @Override
     public void destroyItem(@NonNull ViewGroup container, int position, @NonNull Object object) {
-        /*int realPosition = toRealPosition(position);
-        mAdapter.destroyItem(container,realPosition,object);
-        mViewArray.remove(realPosition);*/
+        if (object instanceof GhostPageView && mGhostPages.remove(object) != null) {
+            GhostPageView ghost = (GhostPageView) object;
+            container.removeView(ghost);
+            ghost.release();
+            return;
+        }
+        PageRef ref = mAlivePages.get(object);
+        if (ref != null && --ref.refCount > 0) {
+            //仍有其他位置(辅助页或真实页)在使用该页面
+            if (ref.refCount == 1) {
+                mSharedPageCount--;
+            }
+            return;
+        }
+        mAlivePages.remove(object);
+        if (ref != null && ref.view != null) {
+            mPagesByView.remove(ref.view);
+            //快照来源被销毁,辅助页保留最后一次的快照作为占位,直到该位置的页面重新实例化
+            for (GhostPageView ghost : mGhostPages.keySet()) {
+                if (ghost.getSource() == ref.view) {
+                    ghost.setSource(null);
+                }
+            }
+        }
+        int realPosition = ref != null ? ref.realPosition : toRealPosition(position);
+        mAdapter.destroyItem(container, realPosition, object);
+        if (mDiffHelper != null) {
+            mDiffHelper.onDestroy(object);
+        }
+        if (ref != null && ref.view != null && mViewArray.get(realPosition) == ref.view) {
+            mViewArray.remove(realPosition);
+            //同一真实位置还有其他存活的页面对象时,改为记录该页面
+            for (PageRef other : mAlivePages.values()) {
+                if (other.realPosition == realPosition && other.view != null) {
+                    mViewArray.put(realPosition, other.view);
+                    break;
+                }
+            }
+        }
+    }
+
+    private PageRef findAlivePage(int realPosition) {
+        for (PageRef ref : mAlivePages.values()) {
+            if (ref.realPosition == realPosition) {
+                return ref;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return 当前存活(已instantiateItem且尚未真正destroyItem)的页面对象个数
+     */
+    public int getAlivePageCount() {
+        return mAlivePages.size();
+    }
+
+    /**
+     * CoolViewPager无缝循环时整体平移了页面位置,同步更新差量刷新记录中的位置
+     *
+     * @param object
+     * @param position 平移后的位置
+     */
+    public void onItemPositionChanged(@NonNull Object object, int position) {
+        if (mDiffHelper != null) {
+            PageDiffHelper.Record record = mDiffHelper.getRecord(object);
+            if (record != null) {
+                record.position = position;
+            }
+        }
+    }
+
+    @Override
+    public float getPageWidth(int position) {
+        return mAdapter.getPageWidth(toRealPosition(position));
+    }
+
+    /**
+     * @return 用户Adapter是否实现了{@link StableIdPagerAdapter}且有稳定ID
+     */
+    public boolean hasStableIds() {
+        return PageDiffHelper.hasStableIds(mAdapter);
+    }
+
+    /**
+     * @param position
+     * @return 指定位置页面的稳定ID,没有稳定ID时返回{@link StableIdPagerAdapter#NO_ID}
+     */
+    public long getItemId(int position) {
+        if (!hasStableIds() || getRealCount() == 0) {
+            return StableIdPagerAdapter.NO_ID;
+        }
+        return ((StableIdPagerAdapter) mAdapter).getItemId(toRealPosition(position));
+    }
+
+    /**
+     * @param object
+     * @return 页面内容是否已经准备好.辅助页快照显示的是来源页面的最新内容时返回true;
+     * 用户Adapter不是{@link AsyncPagerAdapter}时也总是返回true
+     */
+    public boolean isPageReady(@NonNull Object object) {
+        if (object instanceof GhostPageView && mGhostPages.containsKey(object)) {
+            return ((GhostPageView) object).isSnapshotReady();
+        }
+        return !(mAdapter instanceof AsyncPagerAdapter) || ((AsyncPagerAdapter) mAdapter).isPageReady(object);
+    }
+
+    /**
+     * @param position
+     * @return 指定位置(含辅助页)对应实际页面的自动滚动停留时间,用户Adapter未实现{@link DwellTimePagerAdapter}时返回{@link DwellTimePagerAdapter#DEFAULT_DWELL_TIME}
+     */
+    public long getDwellTime(int position) {
+        if (!(mAdapter instanceof DwellTimePagerAdapter) || getRealCount() == 0) {
+            return DwellTimePagerAdapter.DEFAULT_DWELL_TIME;
+        }
+        return ((DwellTimePagerAdapter) mAdapter).getDwellTime(toRealPosition(position));
+    }
+
+    /**
+     * @param id
+     * @return 稳定ID对应页面的位置(非首尾辅助页),不存在时返回-1
+     */
+    public int getItemPositionForId(long id) {
+        if (!hasStableIds()) {
+            return -1;
+        }
+        StableIdPagerAdapter adapter = (StableIdPagerAdapter) mAdapter;
+        for (int i = 0, count = getRealCount(); i < count; i++) {
+            if (adapter.getItemId(i) == id) {
+                return toInnerPosition(i);
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public void notifyDataSetChanged() {
+        mPreviousRealCount = mKnownRealCount;
+        mKnownRealCount = getRealCount();
+        if (mDiffHelper != null) {
+            mDiffHelper.rebuildIndex(mKnownRealCount);
+        }
+        super.notifyDataSetChanged();
     }
 
     /**
      * 解决原生PagerAdapter实例调用{@link PagerAdapter#notifyDataSetChanged()},ViewPager界面不刷新的问题
      * 详见:http://www.07net01.com/program/642011.html
+     * <p>
+     * 用户Adapter实现了{@link DiffablePagerAdapter}时,数据项仍存在的页面返回其新位置,只重建发生变化的页面
      *
      * @param object
      * @return
      */
     @Override
     public int getItemPosition(@NonNull Object object) {
+        if (object instanceof GhostPageView) {
+            //快照辅助页没有对应的数据项,数据变化后重建
+            return POSITION_NONE;
+        }
+        if (mDiffHelper != null) {
+            PageRef ref = mAlivePages.get(object);
+            if (ref != null && ref.refCount > 1) {
+                //同一页面对象对应多个位置,无法只返回一个新位置,重建
+                return POSITION_NONE;
+            }
+            return getDiffItemPosition(object);
+        }
         int mChildCount = getCount();
         if(mChildCount > 0){
             return POSITION_NONE;
@@ -98,13 +428,63 @@ public class LoopPagerAdapterWrapper extends PagerAdapter {
         return super.getItemPosition(object);
     }
 
+    private int getDiffItemPosition(Object object) {
+        PageDiffHelper.Record record = mDiffHelper.getRecord(object);
+        int newRealPosition = mDiffHelper.indexOf(record);
+        if (newRealPosition < 0) {
+            return POSITION_NONE;
+        }
+        int newPosition;
+        if (mVirtualCount) {
+            //保持页面所在的周期不变
+            int cycle = mPreviousRealCount > 0 ? record.position / mPreviousRealCount : 0;
+            newPosition = cycle * mKnownRealCount + newRealPosition;
+            if (newPosition >= getCount()) {
+                newPosition = POSITION_NONE;
+            }
+        } else if (record.position < mGhostCount) {
+            //头部辅助页展示的是末尾的数据项,数据项仍在原来的相对位置时才保留
+            newPosition = floorMod(record.position - mGhostCount, mKnownRealCount) == newRealPosition
+                    ? record.position : POSITION_NONE;
+        } else if (record.position >= mPreviousRealCount + mGhostCount) {
+            //尾部辅助页展示的是开头的数据项,同理
+            int ghostIndex = record.position - mPreviousRealCount - mGhostCount;
+            newPosition = floorMod(ghostIndex, mKnownRealCount) == newRealPosition
+                    ? mKnownRealCount + mGhostCount + ghostIndex : POSITION_NONE;
+        } else {
+            newPosition = toInnerPosition(newRealPosition);
+        }
+        if (newPosition != POSITION_NONE) {
+            record.position = newPosition;
+            record.realPosition = newRealPosition;
+        }
+        return newPosition;
+    }
+
+    private static int floorMod(int x, int y) {
+        int mod = x % y;
+        return mod < 0 ? mod + y : mod;
+    }
+
     public Object getPageFromVPChild(View child){
-        int key = indexOfValue(child);
-        if(key < 0){
+        int realPosition = getRealPositionForView(child);
+        if(realPosition < 0){
             return null;
         }else{
-            return getViewAtRealPosition(key);
+            return getViewAtRealPosition(realPosition);
+        }
+    }
+
+    /**
+     * @param child CoolViewPager的子View
+     * @return 子View对应页面的真实位置,不是存活页面时返回-1
+     */
+    public int getRealPositionForView(View child) {
+        if (child instanceof GhostPageView && mGhostPages.containsKey(child)) {
+            return ((GhostPageView) child).getRealPosition();
         }
+        PageRef ref = mPagesByView.get(child);
+        return ref == null ? -1 : ref.realPosition;
     }
     public int indexOfValue(Object value){
         return mViewArray.indexOfValue(value);
@@ -112,4 +492,14 @@ public class LoopPagerAdapterWrapper extends PagerAdapter {
     public View getViewAtRealPosition(int position) {
         return (View) mViewArray.get(position);
     }
+
+    /**
+     * 存活页面的引用信息
+     */
+    private static final class PageRef {
+        Object object;
+        int refCount;
+        int realPosition;
+        View view;
+    }
 }
\ No newline at end of file
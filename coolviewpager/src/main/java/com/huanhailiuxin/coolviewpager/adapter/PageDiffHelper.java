@@ -0,0 +1,123 @@
+package com.huanhailiuxin.coolviewpager.adapter;
+
+import android.support.v4.view.PagerAdapter;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+
+/**
+ * 为{@link PagerAdapterWrapper}及{@link LoopPagerAdapterWrapper}记录每个页面对应的数据项(稳定ID或数据项本身),
+ * 数据变化后据此计算页面的新位置
+ *
+ * <p>
+ * 记录的是数据项的引用而不是内容的副本,数据项被原地修改时无法察觉,见{@link DiffablePagerAdapter#getItem(int)}.
+ * 新数据中有多个相等的数据项时,页面只有在原位置上仍是相等的数据项时才保留,否则重建,不会有两个页面对应同一位置.
+ * </p>
+ */
+final class PageDiffHelper {
+    static final class Record {
+        //页面创建时对应的数据项,有稳定ID时为ID
+        Object item;
+        //页面在包装类中的位置
+        int position;
+        //页面对应的数据项在用户Adapter中的位置
+        int realPosition;
+    }
+
+    //mIndex中表示该数据项在最新数据中出现了多次
+    private static final int DUPLICATE = -2;
+
+    private final PagerAdapter mAdapter;
+    private final boolean mStableIds;
+    //instantiateItem返回的object -> Record
+    private final IdentityHashMap<Object, Record> mRecords = new IdentityHashMap<Object, Record>();
+    //数据项 -> 最新数据中的位置(出现多次时为DUPLICATE),每次notifyDataSetChanged时重建
+    private final HashMap<Object, Integer> mIndex = new HashMap<Object, Integer>();
+    private int mRealCount;
+
+    private PageDiffHelper(PagerAdapter adapter, boolean stableIds) {
+        this.mAdapter = adapter;
+        this.mStableIds = stableIds;
+    }
+
+    /**
+     * @param adapter 用户Adapter
+     * @return 用户Adapter有稳定ID或实现了{@link DiffablePagerAdapter}时返回PageDiffHelper,否则返回null
+     */
+    static PageDiffHelper create(PagerAdapter adapter) {
+        if (hasStableIds(adapter)) {
+            return new PageDiffHelper(adapter, true);
+        }
+        if (adapter instanceof DiffablePagerAdapter) {
+            return new PageDiffHelper(adapter, false);
+        }
+        return null;
+    }
+
+    static boolean hasStableIds(PagerAdapter adapter) {
+        return adapter instanceof StableIdPagerAdapter && ((StableIdPagerAdapter) adapter).hasStableIds();
+    }
+
+    private Object getKey(int realPosition) {
+        if (mStableIds) {
+            return ((StableIdPagerAdapter) mAdapter).getItemId(realPosition);
+        }
+        return ((DiffablePagerAdapter) mAdapter).getItem(realPosition);
+    }
+
+    void onInstantiate(Object object, int position, int realPosition) {
+        Record record = mRecords.get(object);
+        if (record == null) {
+            record = new Record();
+            mRecords.put(object, record);
+        }
+        record.item = getKey(realPosition);
+        record.position = position;
+        record.realPosition = realPosition;
+    }
+
+    void onDestroy(Object object) {
+        mRecords.remove(object);
+    }
+
+    Record getRecord(Object object) {
+        return mRecords.get(object);
+    }
+
+    /**
+     * 根据最新数据重建数据项索引
+     *
+     * @param realCount 用户Adapter的数据个数
+     */
+    void rebuildIndex(int realCount) {
+        mIndex.clear();
+        mRealCount = realCount;
+        for (int i = 0; i < realCount; i++) {
+            final Object item = getKey(i);
+            if (item != null && mIndex.put(item, i) != null) {
+                mIndex.put(item, DUPLICATE);
+            }
+        }
+    }
+
+    /**
+     * @param record
+     * @return 页面对应的数据项在最新数据中的位置,不存在时返回-1;
+     * 数据项出现了多次时,只有原位置上仍是相等的数据项才返回原位置,否则返回-1
+     */
+    int indexOf(Record record) {
+        if (record == null || record.item == null) {
+            return -1;
+        }
+        final Integer index = mIndex.get(record.item);
+        if (index == null) {
+            return -1;
+        }
+        if (index == DUPLICATE) {
+            final int realPosition = record.realPosition;
+            return realPosition >= 0 && realPosition < mRealCount && record.item.equals(getKey(realPosition))
+                    ? realPosition : -1;
+        }
+        return index;
+    }
+}
@@ -18,8 +18,11 @@ import android.view.ViewGroup;
 
 public class PagerAdapterWrapper extends PagerAdapter {
     private PagerAdapter mAdapter;
+    //用户Adapter有稳定ID或实现了DiffablePagerAdapter时不为null,此时按数据项差量刷新
+    private PageDiffHelper mDiffHelper;
     public PagerAdapterWrapper(PagerAdapter adapter){
         this.mAdapter = adapter;
+        mDiffHelper = PageDiffHelper.create(adapter);
     }
 
     @Override
@@ -35,23 +38,109 @@ public class PagerAdapterWrapper extends PagerAdapter {
     @NonNull
     @Override
     public Object instantiateItem(@NonNull ViewGroup container, int position) {
-        return mAdapter.instantiateItem(container,position);
+        Object item = mAdapter.instantiateItem(container,position);
+        if (mDiffHelper != null) {
+            mDiffHelper.onInstantiate(item, position, position);
+        }
+        return item;
     }
 
     @Override
     public void destroyItem(@NonNull ViewGroup container, int position, @NonNull Object object) {
+        if (mDiffHelper != null) {
+            mDiffHelper.onDestroy(object);
+        }
         mAdapter.destroyItem(container,position,object);
     }
 
+    @Override
+    public float getPageWidth(int position) {
+        return mAdapter.getPageWidth(position);
+    }
+
+    /**
+     * @return 用户Adapter是否实现了{@link StableIdPagerAdapter}且有稳定ID
+     */
+    public boolean hasStableIds() {
+        return PageDiffHelper.hasStableIds(mAdapter);
+    }
+
+    /**
+     * @param position
+     * @return 指定位置页面的稳定ID,没有稳定ID时返回{@link StableIdPagerAdapter#NO_ID}
+     */
+    public long getItemId(int position) {
+        if (!hasStableIds() || position < 0 || position >= getCount()) {
+            return StableIdPagerAdapter.NO_ID;
+        }
+        return ((StableIdPagerAdapter) mAdapter).getItemId(position);
+    }
+
+    /**
+     * @param object
+     * @return 页面内容是否已经准备好,用户Adapter不是{@link AsyncPagerAdapter}时总是返回true
+     */
+    public boolean isPageReady(@NonNull Object object) {
+        return !(mAdapter instanceof AsyncPagerAdapter) || ((AsyncPagerAdapter) mAdapter).isPageReady(object);
+    }
+
+    /**
+     * @param position
+     * @return 指定位置页面的自动滚动停留时间,用户Adapter未实现{@link DwellTimePagerAdapter}时返回{@link DwellTimePagerAdapter#DEFAULT_DWELL_TIME}
+     */
+    public long getDwellTime(int position) {
+        if (!(mAdapter instanceof DwellTimePagerAdapter) || position < 0 || position >= getCount()) {
+            return DwellTimePagerAdapter.DEFAULT_DWELL_TIME;
+        }
+        return ((DwellTimePagerAdapter) mAdapter).getDwellTime(position);
+    }
+
+    /**
+     * @param id
+     * @return 稳定ID对应页面的位置,不存在时返回-1
+     */
+    public int getItemPositionForId(long id) {
+        if (!hasStableIds()) {
+            return -1;
+        }
+        StableIdPagerAdapter adapter = (StableIdPagerAdapter) mAdapter;
+        for (int i = 0, count = getCount(); i < count; i++) {
+            if (adapter.getItemId(i) == id) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public void notifyDataSetChanged() {
+        if (mDiffHelper != null) {
+            mDiffHelper.rebuildIndex(getCount());
+        }
+        super.notifyDataSetChanged();
+    }
+
     /**
      * 解决原生PagerAdapter实例调用{@link PagerAdapter#notifyDataSetChanged()},ViewPager界面不刷新的问题
      * 详见:http://www.07net01.com/program/642011.html
+     * <p>
+     * 用户Adapter实现了{@link DiffablePagerAdapter}时,数据项仍存在的页面返回其新位置,只重建发生变化的页面
      *
      * @param object
      * @return
      */
     @Override
     public int getItemPosition(@NonNull Object object) {
+        if (mDiffHelper != null) {
+            PageDiffHelper.Record record = mDiffHelper.getRecord(object);
+            int newPosition = mDiffHelper.indexOf(record);
+            if (newPosition < 0) {
+                return POSITION_NONE;
+            }
+            record.position = newPosition;
+            record.realPosition = newPosition;
+            return newPosition;
+        }
         int mChildCount = getCount();
         if(mChildCount > 0){
             return POSITION_NONE;
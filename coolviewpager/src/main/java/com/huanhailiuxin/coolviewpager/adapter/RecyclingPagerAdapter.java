@@ -0,0 +1,144 @@
+package com.huanhailiuxin.coolviewpager.adapter;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v4.view.PagerAdapter;
+import android.view.View;
+import android.view.ViewGroup;
+
+import com.huanhailiuxin.coolviewpager.R;
+
+import java.util.ArrayList;
+
+/**
+ * 可复用页面View的PagerAdapter
+ *
+ * <p>
+ * 页面被移出缓存窗口时,{@link #destroyItem(ViewGroup, int, Object)}不再直接丢弃页面View,
+ * 而是按viewType放入有界的复用池;{@link #instantiateItem(ViewGroup, int)}优先从复用池中取出同类型的View,
+ * 交给{@link #getView(int, View, ViewGroup)}重新绑定数据,用法与ListView的Adapter一致.
+ * </p>
+ * <p>
+ * 通过{@link PagerAdapterWrapper}及{@link LoopPagerAdapterWrapper}包装后同样适用.
+ * </p>
+ */
+public abstract class RecyclingPagerAdapter extends PagerAdapter {
+    private static final int DEFAULT_MAX_SCRAP_PER_TYPE = 3;
+
+    private final int mMaxScrapPerType;
+    //下标为viewType,元素为该类型可复用的页面View;按getViewTypeCount()创建,个数变化后重建
+    private ArrayList<View>[] mScrapHeap;
+
+    public RecyclingPagerAdapter() {
+        this(DEFAULT_MAX_SCRAP_PER_TYPE);
+    }
+
+    /**
+     * @param maxScrapPerType 每种viewType最多缓存的View个数
+     */
+    public RecyclingPagerAdapter(int maxScrapPerType) {
+        this.mMaxScrapPerType = Math.max(0, maxScrapPerType);
+    }
+
+    /**
+     * 获取或复用指定位置的页面View
+     *
+     * @param position    页面位置
+     * @param convertView 可复用的同类型View,为null时需新建
+     * @param container   CoolViewPager实例
+     * @return
+     */
+    @NonNull
+    public abstract View getView(int position, @Nullable View convertView, @NonNull ViewGroup container);
+
+    /**
+     * 复用池按viewType的个数创建,个数变化时丢弃已缓存的View
+     *
+     * @return viewType的个数,至少为1,{@link #getItemViewType(int)}的返回值需在[0, getViewTypeCount())范围内
+     */
+    public int getViewTypeCount() {
+        return 1;
+    }
+
+    /**
+     * @param position
+     * @return 指定位置页面的viewType
+     */
+    public int getItemViewType(int position) {
+        return 0;
+    }
+
+    @Override
+    public boolean isViewFromObject(@NonNull View view, @NonNull Object object) {
+        return view == object;
+    }
+
+    @NonNull
+    @Override
+    public Object instantiateItem(@NonNull ViewGroup container, int position) {
+        final int viewType = getItemViewType(position);
+        final int viewTypeCount = getViewTypeCount();
+        if (viewType < 0 || viewType >= viewTypeCount) {
+            throw new IllegalStateException("getItemViewType(" + position + ") returned " + viewType
+                    + ", which is not in [0, " + viewTypeCount + ")");
+        }
+        final View convertView = obtainScrapView(viewType);
+        final View view = getView(position, convertView, container);
+        view.setTag(R.id.cvp_view_type, viewType);
+        container.addView(view);
+        return view;
+    }
+
+    @Override
+    public void destroyItem(@NonNull ViewGroup container, int position, @NonNull Object object) {
+        final View view = (View) object;
+        container.removeView(view);
+        //viewType记录在View上,数据变化后position对应的viewType可能已经不同
+        final Object viewType = view.getTag(R.id.cvp_view_type);
+        if (viewType instanceof Integer) {
+            addScrapView((Integer) viewType, view);
+        }
+    }
+
+    /**
+     * 清空复用池
+     */
+    public void clearScrapViews() {
+        mScrapHeap = null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private ArrayList<View>[] getScrapHeap() {
+        final int viewTypeCount = getViewTypeCount();
+        if (viewTypeCount < 1) {
+            throw new IllegalStateException("getViewTypeCount() must be at least 1, was " + viewTypeCount);
+        }
+        if (mScrapHeap == null || mScrapHeap.length != viewTypeCount) {
+            mScrapHeap = new ArrayList[viewTypeCount];
+            for (int i = 0; i < viewTypeCount; i++) {
+                mScrapHeap[i] = new ArrayList<View>(mMaxScrapPerType);
+            }
+        }
+        return mScrapHeap;
+    }
+
+    private View obtainScrapView(int viewType) {
+        final ArrayList<View> scrap = getScrapHeap()[viewType];
+        if (scrap.isEmpty()) {
+            return null;
+        }
+        return scrap.remove(scrap.size() - 1);
+    }
+
+    private void addScrapView(int viewType, View view) {
+        final ArrayList<View>[] scrapHeap = getScrapHeap();
+        //viewType个数变化前创建的View可能已超出范围,直接丢弃
+        if (viewType >= scrapHeap.length) {
+            return;
+        }
+        final ArrayList<View> scrap = scrapHeap[viewType];
+        if (scrap.size() < mMaxScrapPerType) {
+            scrap.add(view);
+        }
+    }
+}
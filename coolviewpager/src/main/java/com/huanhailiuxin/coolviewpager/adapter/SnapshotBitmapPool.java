@@ -0,0 +1,115 @@
+package com.huanhailiuxin.coolviewpager.adapter;
+
+import android.graphics.Bitmap;
+
+import java.util.ArrayList;
+
+/**
+ * 辅助页快照使用的Bitmap池
+ *
+ * <p>
+ * 快照被释放后放回池中,同一尺寸最多保留一张空闲Bitmap供下一个辅助页复用;
+ * 已分配的快照(含空闲的)总大小不超过上限,超过时先回收空闲的Bitmap,仍然不够则不再分配.
+ * 只在主线程中使用.
+ * </p>
+ */
+final class SnapshotBitmapPool {
+    private static final int BYTES_PER_PIXEL = 4;
+
+    private final long mMaxBytes;
+    //已分配且尚未recycle的快照总大小,含空闲的
+    private long mAllocatedBytes;
+    private final ArrayList<Bitmap> mFree = new ArrayList<Bitmap>();
+
+    /**
+     * @param maxBytes 快照总大小的上限
+     */
+    SnapshotBitmapPool(long maxBytes) {
+        this.mMaxBytes = maxBytes;
+    }
+
+    /**
+     * @return 默认上限:应用最大可用内存的1/16
+     */
+    static long getDefaultMaxBytes() {
+        return Runtime.getRuntime().maxMemory() / 16;
+    }
+
+    private static long getBytes(int width, int height) {
+        return (long) width * height * BYTES_PER_PIXEL;
+    }
+
+    private int indexOfFree(int width, int height) {
+        for (int i = 0; i < mFree.size(); i++) {
+            final Bitmap bitmap = mFree.get(i);
+            if (bitmap.getWidth() == width && bitmap.getHeight() == height) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param width
+     * @param height
+     * @return 是否还能为该尺寸提供快照;尺寸未知(<=0)时返回true
+     */
+    boolean canAcquire(int width, int height) {
+        if (width <= 0 || height <= 0 || indexOfFree(width, height) >= 0) {
+            return true;
+        }
+        long freeBytes = 0;
+        for (int i = 0; i < mFree.size(); i++) {
+            freeBytes += getBytes(mFree.get(i).getWidth(), mFree.get(i).getHeight());
+        }
+        return mAllocatedBytes - freeBytes + getBytes(width, height) <= mMaxBytes;
+    }
+
+    /**
+     * @param width
+     * @param height
+     * @return 指定尺寸的Bitmap,内容未清空;超过上限时返回null
+     */
+    Bitmap acquire(int width, int height) {
+        final int index = indexOfFree(width, height);
+        if (index >= 0) {
+            return mFree.remove(index);
+        }
+        final long bytes = getBytes(width, height);
+        while (mAllocatedBytes + bytes > mMaxBytes && !mFree.isEmpty()) {
+            recycle(mFree.remove(mFree.size() - 1));
+        }
+        if (mAllocatedBytes + bytes > mMaxBytes) {
+            return null;
+        }
+        mAllocatedBytes += bytes;
+        return Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+    }
+
+    /**
+     * 放回池中,已有同尺寸的空闲Bitmap时直接回收
+     *
+     * @param bitmap
+     */
+    void release(Bitmap bitmap) {
+        if (indexOfFree(bitmap.getWidth(), bitmap.getHeight()) >= 0) {
+            recycle(bitmap);
+        } else {
+            mFree.add(bitmap);
+        }
+    }
+
+    /**
+     * 回收所有空闲的Bitmap
+     */
+    void trim() {
+        for (int i = mFree.size() - 1; i >= 0; i--) {
+            recycle(mFree.remove(i));
+        }
+    }
+
+    private void recycle(Bitmap bitmap) {
+        mAllocatedBytes -= getBytes(bitmap.getWidth(), bitmap.getHeight());
+        bitmap.recycle();
+    }
+}
@@ -0,0 +1,29 @@
+package com.huanhailiuxin.coolviewpager.adapter;
+
+/**
+ * 为页面提供稳定ID的PagerAdapter需实现的接口
+ *
+ * <p>
+ * {@link #hasStableIds()}返回true时,包装类及CoolViewPager以ID而不是位置识别页面:
+ * 数据插入、删除或重新排序后,ID仍存在的页面会被移动到新位置而不是重建;
+ * 保存及恢复状态时也会恢复到同一ID对应的页面.
+ * 同时实现了{@link DiffablePagerAdapter}时,以ID为准.
+ * </p>
+ */
+public interface StableIdPagerAdapter {
+    /**
+     * 没有ID
+     */
+    long NO_ID = -1;
+
+    /**
+     * @return 同一数据项的ID是否在数据变化前后保持不变.需在设置给CoolViewPager之前确定,之后不应改变
+     */
+    boolean hasStableIds();
+
+    /**
+     * @param position
+     * @return 指定位置数据项的ID
+     */
+    long getItemId(int position);
+}
@@ -4,20 +4,20 @@ package com.huanhailiuxin.coolviewpager.transformer;
  * Created by daimajia on 14-5-29.
  */
 
-import android.support.v4.view.ViewPager;
-import android.view.View;
+import static com.huanhailiuxin.coolviewpager.transformer.KeyframeTransformer.Property.*;
 
-public class AccordionTransformer implements ViewPager.PageTransformer {
+public class AccordionTransformer extends KeyframeTransformer {
 
-    @Override
-    public void transformPage(View page, float position) {
-        if(position < -1 || position > 1){
-            page.setTranslationX(0F);
-            page.setScaleX(1F);
-        }else{
-            page.setPivotX(position < 0F ? 0F : page.getWidth());
-            page.setScaleX(position < 0F ? 1F + position : 1F - position);
-            page.setTranslationX(page.getWidth() * -position);
-        }
+    public AccordionTransformer() {
+        super(new Builder()
+                .keyframe(TRANSLATION_X, -1F, 1F)
+                .keyframe(TRANSLATION_X, 1F, -1F)
+                .outside(TRANSLATION_X, 0F)
+                .keyframe(SCALE_X, -1F, 0F)
+                .keyframe(SCALE_X, 0F, 1F)
+                .keyframe(SCALE_X, 1F, 0F)
+                .outside(SCALE_X, 1F)
+                .step(PIVOT_X, 0F, 0F, 1F)
+                .skipOutside(PIVOT_X));
     }
-}
\ No newline at end of file
+}
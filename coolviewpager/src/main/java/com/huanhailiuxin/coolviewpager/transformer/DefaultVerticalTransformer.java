@@ -1,8 +1,6 @@
 package com.huanhailiuxin.coolviewpager.transformer;
 
-import android.support.annotation.NonNull;
-import android.support.v4.view.ViewPager;
-import android.view.View;
+import static com.huanhailiuxin.coolviewpager.transformer.KeyframeTransformer.Property.*;
 
 /**
  * DefaultVerticalTransformer是CoolViewPager在垂直方向滚动的情况下默认的PageTransformer
@@ -13,10 +11,14 @@ import android.view.View;
  * 2018/1/16 11:31
  */
 
-public class DefaultVerticalTransformer implements ViewPager.PageTransformer {
-    @Override
-    public void transformPage(@NonNull View page, float position) {
-        page.setTranslationX(page.getWidth() * -position);
-        page.setTranslationY(page.getHeight() * position);
+public class DefaultVerticalTransformer extends KeyframeTransformer {
+    public DefaultVerticalTransformer() {
+        super(new Builder()
+                .keyframe(TRANSLATION_X, -1F, 1F)
+                .keyframe(TRANSLATION_X, 1F, -1F)
+                .extend(TRANSLATION_X)
+                .keyframe(TRANSLATION_Y, -1F, -1F)
+                .keyframe(TRANSLATION_Y, 1F, 1F)
+                .extend(TRANSLATION_Y));
     }
 }
@@ -1,29 +1,30 @@
 package com.huanhailiuxin.coolviewpager.transformer;
 
-import android.support.v4.view.ViewPager;
-import android.view.View;
+import static com.huanhailiuxin.coolviewpager.transformer.KeyframeTransformer.Property.*;
 
-public class DepthPageTransformer implements ViewPager.PageTransformer {
+public class DepthPageTransformer extends KeyframeTransformer {
 
 	private static final float MIN_SCALE = 0.75F;
 
-	@Override
-	public void transformPage(View page, float position) {
-        if(position < -1){
-        }else if (position <= 0) {
-            page.setAlpha(1.0F + position);
-            page.setTranslationX(0F);
-            page.setScaleX(1F);
-            page.setScaleY(1F);
-		} else if (position <= 1) {
-            page.setTranslationX(page.getWidth() * -position);
-            page.setAlpha(1F-position);
-            final float scaleFactor = MIN_SCALE + (1F - MIN_SCALE) * (1F - Math.abs(position));
-            page.setPivotX(page.getWidth()/2);
-            page.setPivotY(page.getHeight()/2);
-            page.setScaleX(scaleFactor);
-            page.setScaleY(scaleFactor);
-		}else {
-        }
+	public DepthPageTransformer() {
+		super(new Builder()
+				.keyframe(ALPHA, -1F, 0F)
+				.keyframe(ALPHA, 0F, 1F)
+				.keyframe(ALPHA, 1F, 0F)
+				.keyframe(TRANSLATION_X, 0F, 0F)
+				.keyframe(TRANSLATION_X, 1F, -1F)
+				.keyframe(SCALE_X, 0F, 1F)
+				.keyframe(SCALE_X, 1F, MIN_SCALE)
+				.keyframe(SCALE_Y, 0F, 1F)
+				.keyframe(SCALE_Y, 1F, MIN_SCALE)
+				.constant(PIVOT_X, 0.5F)
+				.constant(PIVOT_Y, 0.5F)
+				//[-1,1]以外不改变页面
+				.skipOutside(ALPHA)
+				.skipOutside(TRANSLATION_X)
+				.skipOutside(SCALE_X)
+				.skipOutside(SCALE_Y)
+				.skipOutside(PIVOT_X)
+				.skipOutside(PIVOT_Y));
 	}
 }
@@ -0,0 +1,490 @@
+package com.huanhailiuxin.coolviewpager.transformer;
+
+import android.animation.TimeInterpolator;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v4.view.ViewPager;
+import android.view.View;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 以关键帧声明的PageTransformer
+ *
+ * <p>
+ * 通过{@link Builder}为每个View属性声明页面位置[-1,1]上的关键帧,构建时编译为查找表:
+ * [-1,1]被等分为{@link #SEGMENTS}段,每段保存起始值及斜率,两端各多一段用于查找表以外的位置.
+ * 在[-1,1]以外声明了关键帧时,查找表扩展到[-n,n],n为最外侧关键帧位置向上取整.
+ * transformPage时只需一次定位所在的段,每个属性一次乘加,没有对象分配,也没有按位置区间的分支判断.
+ * 属性通过{@link PagePropertyWriter}写入,与该页面上一次写入的值相同时跳过.
+ * </p>
+ * <p>
+ * 关键帧之间线性插值,也可为一段指定{@link TimeInterpolator},编译时按段采样.
+ * 关键帧位置按1/{@link #SEGMENTS_PER_UNIT}对齐时结果是精确的,否则在所在的段内近似.
+ * [-1,1]以外默认保持两端的值,可通过{@link Builder#outside(Property, float)}指定固定值,
+ * 通过{@link Builder#extend(Property)}按两端的斜率线性延伸,通过{@link Builder#skipOutside(Property)}不写入该属性,
+ * 也可以直接在[-1,1]以外声明关键帧,此时最外侧关键帧以外保持该关键帧的值,或通过extend按最外侧一段的斜率延伸.
+ * </p>
+ * <p>
+ * 同一个实例只应设置给一个CoolViewPager,只在主线程中使用.
+ * </p>
+ */
+public class KeyframeTransformer implements ViewPager.PageTransformer {
+    //页面位置每变化1对应的段数
+    static final int SEGMENTS_PER_UNIT = 32;
+    //[-1,1]内的段数
+    static final int SEGMENTS = SEGMENTS_PER_UNIT * 2;
+
+    private static final int UNIT_NONE = 0;
+    private static final int UNIT_WIDTH = 1;
+    private static final int UNIT_HEIGHT = 2;
+
+    /**
+     * 可声明关键帧的View属性.
+     * TRANSLATION_X、PIVOT_X的值以页面宽度为单位,TRANSLATION_Y、PIVOT_Y的值以页面高度为单位,其余为View属性本身的值
+     */
+    public enum Property {
+        ALPHA(UNIT_NONE) {
+            @Override
+            void apply(View page, float value) {
+                page.setAlpha(value);
+            }
+        },
+        TRANSLATION_X(UNIT_WIDTH) {
+            @Override
+            void apply(View page, float value) {
+                page.setTranslationX(value);
+            }
+        },
+        TRANSLATION_Y(UNIT_HEIGHT) {
+            @Override
+            void apply(View page, float value) {
+                page.setTranslationY(value);
+            }
+        },
+        SCALE_X(UNIT_NONE) {
+            @Override
+            void apply(View page, float value) {
+                page.setScaleX(value);
+            }
+        },
+        SCALE_Y(UNIT_NONE) {
+            @Override
+            void apply(View page, float value) {
+                page.setScaleY(value);
+            }
+        },
+        ROTATION(UNIT_NONE) {
+            @Override
+            void apply(View page, float value) {
+                page.setRotation(value);
+            }
+        },
+        ROTATION_X(UNIT_NONE) {
+            @Override
+            void apply(View page, float value) {
+                page.setRotationX(value);
+            }
+        },
+        ROTATION_Y(UNIT_NONE) {
+            @Override
+            void apply(View page, float value) {
+                page.setRotationY(value);
+            }
+        },
+        PIVOT_X(UNIT_WIDTH) {
+            @Override
+            void apply(View page, float value) {
+                page.setPivotX(value);
+            }
+        },
+        PIVOT_Y(UNIT_HEIGHT) {
+            @Override
+            void apply(View page, float value) {
+                page.setPivotY(value);
+            }
+        },
+        CAMERA_DISTANCE(UNIT_NONE) {
+            @Override
+            void apply(View page, float value) {
+                page.setCameraDistance(value);
+            }
+        };
+
+        final int unit;
+
+        Property(int unit) {
+            this.unit = unit;
+        }
+
+        abstract void apply(View page, float value);
+    }
+
+    private final Property[] mProperties;
+    private final int[] mUnits;
+    //页面位置在[-1,1]以外时是否跳过该属性
+    private final boolean[] mSkipOutside;
+    //查找表覆盖的页面位置[-mRange,mRange]
+    private final int mRange;
+    //查找表内的段数,每个属性另有两端以外各一段
+    private final int mSegments;
+    private final int mTableSize;
+    //每个属性mTableSize段,每段的起始值及每段的增量
+    private final float[] mStart;
+    private final float[] mDelta;
+    //下标为UNIT_NONE、UNIT_WIDTH、UNIT_HEIGHT,transformPage时填入当前页面的宽高
+    private final float[] mUnitScale = new float[]{1F, 0F, 0F};
+    private final PagePropertyWriter mWriter = new PagePropertyWriter();
+
+    protected KeyframeTransformer(@NonNull Builder builder) {
+        builder.checkTracks();
+        final int count = builder.mTracks.size();
+        mProperties = new Property[count];
+        mUnits = new int[count];
+        mSkipOutside = new boolean[count];
+        mRange = builder.range();
+        mSegments = SEGMENTS_PER_UNIT * 2 * mRange;
+        mTableSize = mSegments + 2;
+        mStart = new float[count * mTableSize];
+        mDelta = new float[count * mTableSize];
+        int index = 0;
+        for (Map.Entry<Property, Track> entry : builder.mTracks.entrySet()) {
+            mProperties[index] = entry.getKey();
+            mUnits[index] = entry.getKey().unit;
+            mSkipOutside[index] = entry.getValue().outsideMode == OUTSIDE_SKIP;
+            entry.getValue().compile(mStart, mDelta, index * mTableSize, mRange);
+            index++;
+        }
+    }
+
+    @Override
+    public void transformPage(@NonNull View page, float position) {
+        mUnitScale[UNIT_WIDTH] = page.getWidth();
+        mUnitScale[UNIT_HEIGHT] = page.getHeight();
+        //以段为单位的坐标,[-mRange,mRange]对应[0,mSegments]
+        final float x = (position + mRange) * SEGMENTS_PER_UNIT;
+        //下标0为查找表左侧,下标mSegments+1为右侧;两侧的段不限制t的范围,实现线性延伸
+        final int segment = (int) (Math.max(-0.5F, Math.min(mSegments + 0.5F, x)) + 1F);
+        final float t = x - (segment - 1);
+        final boolean outside = position < -1F || position > 1F;
+        mWriter.bind(page);
+        for (int i = 0; i < mProperties.length; i++) {
+            if (outside && mSkipOutside[i]) {
+                continue;
+            }
+            final int k = i * mTableSize + segment;
+            mWriter.write(page, mProperties[i], (mStart[k] + mDelta[k] * t) * mUnitScale[mUnits[i]]);
+        }
+    }
+
+    /**
+     * @return 写入页面属性的写入器,可用于统计实际写入及跳过的次数
+     */
+    public PagePropertyWriter getPropertyWriter() {
+        return mWriter;
+    }
+
+    /**
+     * 关键帧
+     */
+    private static final class Keyframe {
+        final float position;
+        //position左侧及右侧的值,不相等时为阶跃
+        final float before;
+        final float after;
+        //从上一个关键帧到本关键帧的插值器,为null时线性插值
+        final TimeInterpolator interpolator;
+
+        Keyframe(float position, float before, float after, TimeInterpolator interpolator) {
+            this.position = position;
+            this.before = before;
+            this.after = after;
+            this.interpolator = interpolator;
+        }
+    }
+
+    private static final Comparator<Keyframe> KEYFRAME_COMPARATOR = new Comparator<Keyframe>() {
+        @Override
+        public int compare(Keyframe o1, Keyframe o2) {
+            return Float.compare(o1.position, o2.position);
+        }
+    };
+
+    private static final int OUTSIDE_KEYFRAMES = 0;
+    private static final int OUTSIDE_FIXED = 1;
+    private static final int OUTSIDE_EXTEND = 2;
+    private static final int OUTSIDE_SKIP = 3;
+
+    /**
+     * 单个属性的关键帧
+     */
+    private static final class Track {
+        final List<Keyframe> keyframes = new ArrayList<>();
+        int outsideMode = OUTSIDE_KEYFRAMES;
+        float outsideValue;
+
+        /**
+         * @param position
+         * @param fromRight position恰好为关键帧时,true取关键帧右侧的值,false取左侧的值
+         * @return
+         */
+        float valueAt(float position, boolean fromRight) {
+            final int size = keyframes.size();
+            final Keyframe first = keyframes.get(0);
+            if (position < first.position || (position == first.position && !fromRight)) {
+                return first.before;
+            }
+            for (int i = 0; i < size; i++) {
+                final Keyframe current = keyframes.get(i);
+                if (position == current.position) {
+                    return fromRight ? current.after : current.before;
+                }
+                if (i + 1 < size) {
+                    final Keyframe next = keyframes.get(i + 1);
+                    if (position < next.position) {
+                        float fraction = (position - current.position) / (next.position - current.position);
+                        if (next.interpolator != null) {
+                            fraction = next.interpolator.getInterpolation(fraction);
+                        }
+                        return current.after + (next.before - current.after) * fraction;
+                    }
+                }
+            }
+            return keyframes.get(size - 1).after;
+        }
+
+        /**
+         * 按位置排序,编译前调用
+         */
+        void sort() {
+            Collections.sort(keyframes, KEYFRAME_COMPARATOR);
+        }
+
+        /**
+         * @return 关键帧覆盖的最左侧位置,不大于-1
+         */
+        float first() {
+            return Math.min(-1F, keyframes.get(0).position);
+        }
+
+        /**
+         * @return 关键帧覆盖的最右侧位置,不小于1
+         */
+        float last() {
+            return Math.max(1F, keyframes.get(keyframes.size() - 1).position);
+        }
+
+        /**
+         * 在{@link #valueAt(float, boolean)}基础上处理[first,last]以外的位置
+         *
+         * @param position
+         * @param fromRight
+         * @return
+         */
+        float sample(float position, boolean fromRight) {
+            final float step = 1F / SEGMENTS_PER_UNIT;
+            final float first = first();
+            final float last = last();
+            if (position < first || (position == first && !fromRight)) {
+                switch (outsideMode) {
+                    case OUTSIDE_FIXED:
+                        return outsideValue;
+                    case OUTSIDE_EXTEND:
+                        final float firstValue = valueAt(first, true);
+                        final float slope = (valueAt(first + step, false) - firstValue) / step;
+                        return firstValue + slope * (position - first);
+                    default:
+                        return valueAt(first, false);
+                }
+            }
+            if (position > last || (position == last && fromRight)) {
+                switch (outsideMode) {
+                    case OUTSIDE_FIXED:
+                        return outsideValue;
+                    case OUTSIDE_EXTEND:
+                        final float lastValue = valueAt(last, false);
+                        final float slope = (lastValue - valueAt(last - step, true)) / step;
+                        return lastValue + slope * (position - last);
+                    default:
+                        return valueAt(last, true);
+                }
+            }
+            return valueAt(position, fromRight);
+        }
+
+        /**
+         * @param start
+         * @param delta
+         * @param offset 该属性在start、delta中的起始下标
+         * @param range  查找表覆盖[-range,range],不小于所有关键帧位置的绝对值
+         */
+        void compile(float[] start, float[] delta, int offset, int range) {
+            final float step = 1F / SEGMENTS_PER_UNIT;
+            final int segments = SEGMENTS_PER_UNIT * 2 * range;
+            for (int i = 0; i < segments; i++) {
+                final float from = -range + i * step;
+                final float to = from + step;
+                final float startValue = sample(from, true);
+                start[offset + i + 1] = startValue;
+                delta[offset + i + 1] = sample(to, false) - startValue;
+            }
+            //[first,last]以外固定、保持或线性延伸,两侧各一段即可覆盖
+            //左侧的段:t<=1,t=1时为-range处左侧的值
+            final int left = offset;
+            delta[left] = sample(-range, false) - sample(-range - step, false);
+            start[left] = sample(-range, false) - delta[left];
+            //右侧的段:t>=0,t=0时为range处右侧的值
+            final int right = offset + segments + 1;
+            start[right] = sample(range, true);
+            delta[right] = sample(range + step, true) - start[right];
+        }
+    }
+
+    /**
+     * 声明关键帧并编译为{@link KeyframeTransformer}
+     */
+    public static class Builder {
+        private final Map<Property, Track> mTracks = new EnumMap<>(Property.class);
+
+        private Track track(Property property) {
+            Track track = mTracks.get(property);
+            if (track == null) {
+                track = new Track();
+                mTracks.put(property, track);
+            }
+            return track;
+        }
+
+        /**
+         * 声明关键帧,与上一个关键帧之间线性插值
+         *
+         * @param property
+         * @param position 页面位置
+         * @param value
+         * @return
+         */
+        public Builder keyframe(@NonNull Property property, float position, float value) {
+            return keyframe(property, position, value, null);
+        }
+
+        /**
+         * 声明关键帧
+         *
+         * @param property
+         * @param position
+         * @param value
+         * @param interpolator 上一个关键帧到本关键帧之间的插值器,为null时线性插值
+         * @return
+         */
+        public Builder keyframe(@NonNull Property property, float position, float value,
+                                @Nullable TimeInterpolator interpolator) {
+            track(property).keyframes.add(new Keyframe(position, value, value, interpolator));
+            return this;
+        }
+
+        /**
+         * 声明阶跃关键帧:position左侧为valueBefore,position及右侧为valueAfter
+         *
+         * @param property
+         * @param position
+         * @param valueBefore
+         * @param valueAfter
+         * @return
+         */
+        public Builder step(@NonNull Property property, float position, float valueBefore, float valueAfter) {
+            track(property).keyframes.add(new Keyframe(position, valueBefore, valueAfter, null));
+            return this;
+        }
+
+        /**
+         * 声明在所有位置保持不变的属性
+         *
+         * @param property
+         * @param value
+         * @return
+         */
+        public Builder constant(@NonNull Property property, float value) {
+            return keyframe(property, 0F, value);
+        }
+
+        /**
+         * 页面位置在[-1,1]以外时使用固定值
+         *
+         * @param property
+         * @param value
+         * @return
+         */
+        public Builder outside(@NonNull Property property, float value) {
+            final Track track = track(property);
+            track.outsideMode = OUTSIDE_FIXED;
+            track.outsideValue = value;
+            return this;
+        }
+
+        /**
+         * 页面位置在[-1,1]以外时按两端的斜率线性延伸,在[-1,1]以外声明了关键帧时从最外侧关键帧开始延伸
+         *
+         * @param property
+         * @return
+         */
+        public Builder extend(@NonNull Property property) {
+            track(property).outsideMode = OUTSIDE_EXTEND;
+            return this;
+        }
+
+        /**
+         * 页面位置在[-1,1]以外时不写入该属性,保持页面上一次的值
+         *
+         * @param property
+         * @return
+         */
+        public Builder skipOutside(@NonNull Property property) {
+            track(property).outsideMode = OUTSIDE_SKIP;
+            return this;
+        }
+
+        /**
+         * @return
+         * @throws IllegalStateException 声明了[-1,1]以外的取值方式,却没有声明关键帧;关键帧位置不是有限值;
+         *                               或在[-1,1]以外声明了关键帧,同时又指定了outside、skipOutside
+         */
+        public KeyframeTransformer build() {
+            return new KeyframeTransformer(this);
+        }
+
+        void checkTracks() {
+            for (Map.Entry<Property, Track> entry : mTracks.entrySet()) {
+                final Track track = entry.getValue();
+                if (track.keyframes.isEmpty()) {
+                    throw new IllegalStateException("No keyframe declared for " + entry.getKey());
+                }
+                track.sort();
+                if (Float.isNaN(track.first()) || Float.isInfinite(track.first())
+                        || Float.isNaN(track.last()) || Float.isInfinite(track.last())) {
+                    throw new IllegalStateException("Keyframe position must be finite for " + entry.getKey());
+                }
+                final boolean keyframesOutside = track.first() < -1F || track.last() > 1F;
+                if (keyframesOutside && (track.outsideMode == OUTSIDE_FIXED || track.outsideMode == OUTSIDE_SKIP)) {
+                    throw new IllegalStateException("Keyframes outside [-1,1] conflict with outside() or skipOutside() for "
+                            + entry.getKey());
+                }
+            }
+        }
+
+        /**
+         * @return 查找表需要覆盖的范围[-range,range]
+         */
+        int range() {
+            float range = 1F;
+            for (Track track : mTracks.values()) {
+                range = Math.max(range, Math.max(-track.first(), track.last()));
+            }
+            return (int) Math.ceil(range);
+        }
+    }
+}
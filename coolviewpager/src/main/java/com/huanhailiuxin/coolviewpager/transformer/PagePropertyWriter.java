@@ -0,0 +1,108 @@
+package com.huanhailiuxin.coolviewpager.transformer;
+
+import android.support.annotation.NonNull;
+import android.view.View;
+
+import com.huanhailiuxin.coolviewpager.R;
+
+import java.util.Arrays;
+
+/**
+ * 带脏检查的页面属性写入器
+ *
+ * <p>
+ * 每次写入View属性都会使其RenderNode失效,而PageTransformer往往每一帧都重复写入相同的值(例如固定的pivot、cameraDistance).
+ * 本类在页面View的tag中缓存最后一次写入的值,值未变化时跳过写入,并统计实际写入及跳过的次数.
+ * 自定义的PageTransformer也可以在transformPage中先调用{@link #bind(View)},再通过{@link #write(View, KeyframeTransformer.Property, float)}写入属性.
+ * </p>
+ * <p>
+ * 缓存属于写入器实例,页面被其他写入器或代码直接修改了属性后,需调用{@link #invalidate(View)}.
+ * 只在主线程中使用.
+ * </p>
+ */
+public final class PagePropertyWriter {
+    private static final int PROPERTY_COUNT = KeyframeTransformer.Property.values().length;
+
+    private float[] mValues;
+    private long mWriteCount;
+    private long mSkippedWriteCount;
+
+    /**
+     * 开始写入一个页面的属性,之后的{@link #write(View, KeyframeTransformer.Property, float)}都作用于该页面
+     *
+     * @param page
+     */
+    public void bind(@NonNull View page) {
+        final Object tag = page.getTag(R.id.cvp_page_properties);
+        final PageValues values;
+        if (tag instanceof PageValues) {
+            values = (PageValues) tag;
+        } else {
+            values = new PageValues();
+            page.setTag(R.id.cvp_page_properties, values);
+        }
+        if (values.owner != this) {
+            //上一次由其他写入器写入,缓存的值不可信
+            values.owner = this;
+            Arrays.fill(values.values, Float.NaN);
+        }
+        mValues = values.values;
+    }
+
+    /**
+     * 与最后一次写入的值不同时才写入
+     *
+     * @param page     最近一次{@link #bind(View)}的页面
+     * @param property
+     * @param value
+     */
+    public void write(@NonNull View page, @NonNull KeyframeTransformer.Property property, float value) {
+        final int index = property.ordinal();
+        if (mValues[index] == value) {
+            mSkippedWriteCount++;
+            return;
+        }
+        mValues[index] = value;
+        property.apply(page, value);
+        mWriteCount++;
+    }
+
+    /**
+     * 清除页面的缓存,下一次写入时不再跳过
+     *
+     * @param page
+     */
+    public static void invalidate(@NonNull View page) {
+        final Object tag = page.getTag(R.id.cvp_page_properties);
+        if (tag instanceof PageValues) {
+            ((PageValues) tag).owner = null;
+        }
+    }
+
+    /**
+     * @return 实际写入View属性的次数
+     */
+    public long getWriteCount() {
+        return mWriteCount;
+    }
+
+    /**
+     * @return 因值未变化而跳过写入的次数
+     */
+    public long getSkippedWriteCount() {
+        return mSkippedWriteCount;
+    }
+
+    public void resetCounts() {
+        mWriteCount = 0;
+        mSkippedWriteCount = 0;
+    }
+
+    /**
+     * 保存在页面tag中的最后写入值
+     */
+    private static final class PageValues {
+        PagePropertyWriter owner;
+        final float[] values = new float[PROPERTY_COUNT];
+    }
+}
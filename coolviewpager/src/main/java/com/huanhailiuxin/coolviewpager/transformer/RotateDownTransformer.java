@@ -1,24 +1,20 @@
 package com.huanhailiuxin.coolviewpager.transformer;
 
-import android.support.v4.view.ViewPager;
-import android.view.View;
+import static com.huanhailiuxin.coolviewpager.transformer.KeyframeTransformer.Property.*;
 
-public class RotateDownTransformer implements ViewPager.PageTransformer {
+public class RotateDownTransformer extends KeyframeTransformer {
 
     private static final float ROT_MOD = -15F;
 
-    @Override
-    public void transformPage(View page, float position) {
-        if (position < -1 || position > 1) {
-            page.setRotation(0F);
-        } else {
-            final float width = page.getWidth();
-            final float height = page.getHeight();
-            final float rotation = ROT_MOD * position * -1.25F;
-            page.setPivotX(width * 0.5F);
-            page.setPivotY(height);
-            page.setRotation(rotation);
-        }
+    public RotateDownTransformer() {
+        super(new Builder()
+                .keyframe(ROTATION, -1F, ROT_MOD * 1.25F)
+                .keyframe(ROTATION, 1F, ROT_MOD * -1.25F)
+                .outside(ROTATION, 0F)
+                .constant(PIVOT_X, 0.5F)
+                .constant(PIVOT_Y, 1F)
+                .skipOutside(PIVOT_X)
+                .skipOutside(PIVOT_Y));
     }
 
 }
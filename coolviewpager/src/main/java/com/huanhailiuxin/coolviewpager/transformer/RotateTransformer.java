@@ -1,7 +1,6 @@
 package com.huanhailiuxin.coolviewpager.transformer;
 
-import android.support.v4.view.ViewPager;
-import android.view.View;
+import static com.huanhailiuxin.coolviewpager.transformer.KeyframeTransformer.Property.*;
 
 /**
  * 作者:幻海流心
@@ -9,28 +8,19 @@ import android.view.View;
  * 邮箱:wall0920@163.com
  * 2018/1/26 11:41
  */
-public class RotateTransformer implements ViewPager.PageTransformer {
-    private float MAX_ROTATE = 90F;
+public class RotateTransformer extends KeyframeTransformer {
+    private static final float MAX_ROTATE = 90F;
 
-    @Override
-    public void transformPage(View page, float position) {
-        page.setCameraDistance(10000F);
-        if(position < -1){
-            /*page.setPivotX(page.getWidth());
-            page.setPivotY(page.getHeight()/2);
-            page.setRotationY(-MAX_ROTATE);*/
-        }else if(position <= 0){
-            page.setPivotX(page.getWidth());
-            page.setPivotY(page.getHeight()/2);
-            page.setRotationY(MAX_ROTATE * position);
-        }else if(position <= 1){
-            page.setPivotX(0F);
-            page.setPivotY(page.getHeight()/2);
-            page.setRotationY(MAX_ROTATE * position);
-        }else {
-            /*page.setPivotX(0F);
-            page.setPivotY(page.getHeight()/2);
-            page.setRotationY(MAX_ROTATE);*/
-        }
+    public RotateTransformer() {
+        super(new Builder()
+                .constant(CAMERA_DISTANCE, 10000F)
+                .keyframe(ROTATION_Y, -1F, -MAX_ROTATE)
+                .keyframe(ROTATION_Y, 1F, MAX_ROTATE)
+                .step(PIVOT_X, 0F, 1F, 0F)
+                .constant(PIVOT_Y, 0.5F)
+                //[-1,1]以外只设置镜头距离
+                .skipOutside(ROTATION_Y)
+                .skipOutside(PIVOT_X)
+                .skipOutside(PIVOT_Y));
     }
 }
@@ -1,9 +1,6 @@
 package com.huanhailiuxin.coolviewpager.transformer;
 
-
-
-import android.support.v4.view.ViewPager;
-import android.view.View;
+import static com.huanhailiuxin.coolviewpager.transformer.KeyframeTransformer.Property.*;
 
 /**
  * 对应代码家的AccordionTransformer,VerticalAccordionTransformer适用于CoolViewPager在垂直方向滚动的情况
@@ -13,18 +10,20 @@ import android.view.View;
  * 邮箱:wall0920@163.com
  * 2018/1/26 11:37
  */
-public class VerticalAccordionTransformer implements ViewPager.PageTransformer {
+public class VerticalAccordionTransformer extends KeyframeTransformer {
 
-    @Override
-    public void transformPage(View page, float position) {
-        page.setTranslationX(page.getWidth() * -position);
-        page.setTranslationY(0F);
-        if(position < -1 || position > 1){
-            page.setScaleX(1F);
-        }else{
-            page.setPivotY(position < 0F ? 0F : page.getHeight());
-            page.setScaleY(position < 0F ? 1F + position : 1F - position);
-        }
+    public VerticalAccordionTransformer() {
+        super(new Builder()
+                .keyframe(TRANSLATION_X, -1F, 1F)
+                .keyframe(TRANSLATION_X, 1F, -1F)
+                .extend(TRANSLATION_X)
+                .constant(TRANSLATION_Y, 0F)
+                .keyframe(SCALE_Y, -1F, 0F)
+                .keyframe(SCALE_Y, 0F, 1F)
+                .keyframe(SCALE_Y, 1F, 0F)
+                .skipOutside(SCALE_Y)
+                .step(PIVOT_Y, 0F, 0F, 1F)
+                .skipOutside(PIVOT_Y));
     }
 
-}
\ No newline at end of file
+}
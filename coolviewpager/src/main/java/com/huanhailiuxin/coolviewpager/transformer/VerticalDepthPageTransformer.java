@@ -1,7 +1,6 @@
 package com.huanhailiuxin.coolviewpager.transformer;
 
-import android.support.v4.view.ViewPager;
-import android.view.View;
+import static com.huanhailiuxin.coolviewpager.transformer.KeyframeTransformer.Property.*;
 
 /**
  * 对应代码家的DepthPageTransformer,VerticalDepthPageTransformer适用于CoolViewPager在垂直方向滚动的情况
@@ -11,28 +10,34 @@ import android.view.View;
  * 邮箱:wall0920@163.com
  * 2018/1/26 11:43
  */
-public class VerticalDepthPageTransformer implements ViewPager.PageTransformer {
+public class VerticalDepthPageTransformer extends KeyframeTransformer {
 
     private static final float MIN_SCALE = 0.75F;
 
-    @Override
-    public void transformPage(View page, float position) {
-        page.setTranslationX(page.getWidth() * -position);
-        page.setTranslationY(page.getHeight() * position);
-        if (position < -1) {
-        } else if (position <= 0F) {
-            page.setAlpha(1.0F + position);
-            page.setTranslationY(page.getHeight() * position);
-            page.setScaleX(1F);
-            page.setScaleY(1F);
-        } else if (position <= 1F) {
-            final float scaleFactor = MIN_SCALE + (1 - MIN_SCALE) * (1 - Math.abs(position));
-            page.setAlpha(1 - position);
-            page.setPivotY(0.5F * page.getHeight());
-            page.setTranslationY(0F);
-            page.setScaleX(scaleFactor);
-            page.setScaleY(scaleFactor);
-        } else {
-        }
+    public VerticalDepthPageTransformer() {
+        super(new Builder()
+                .keyframe(TRANSLATION_X, -1F, 1F)
+                .keyframe(TRANSLATION_X, 1F, -1F)
+                .extend(TRANSLATION_X)
+                //(0,1]内停在原地,下方页面在上方页面之下逐渐显现;[-1,1]以外为页面高度*position,±2以外按斜率延伸
+                .keyframe(TRANSLATION_Y, -2F, -2F)
+                .keyframe(TRANSLATION_Y, -1F, -1F)
+                .keyframe(TRANSLATION_Y, 0F, 0F)
+                .step(TRANSLATION_Y, 1F, 0F, 1F)
+                .keyframe(TRANSLATION_Y, 2F, 2F)
+                .extend(TRANSLATION_Y)
+                .keyframe(ALPHA, -1F, 0F)
+                .keyframe(ALPHA, 0F, 1F)
+                .keyframe(ALPHA, 1F, 0F)
+                .keyframe(SCALE_X, 0F, 1F)
+                .keyframe(SCALE_X, 1F, MIN_SCALE)
+                .keyframe(SCALE_Y, 0F, 1F)
+                .keyframe(SCALE_Y, 1F, MIN_SCALE)
+                .constant(PIVOT_Y, 0.5F)
+                //[-1,1]以外只平移
+                .skipOutside(ALPHA)
+                .skipOutside(SCALE_X)
+                .skipOutside(SCALE_Y)
+                .skipOutside(PIVOT_Y));
     }
 }
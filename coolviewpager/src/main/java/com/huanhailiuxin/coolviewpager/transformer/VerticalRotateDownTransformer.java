@@ -1,7 +1,6 @@
 package com.huanhailiuxin.coolviewpager.transformer;
 
-import android.support.v4.view.ViewPager;
-import android.view.View;
+import static com.huanhailiuxin.coolviewpager.transformer.KeyframeTransformer.Property.*;
 
 /**
  * 对应代码家的RotateDownTransformer,VerticalRotateDownTransformer适用于CoolViewPager在垂直方向滚动的情况
@@ -11,22 +10,19 @@ import android.view.View;
  * 邮箱:wall0920@163.com
  * 2018/1/26 14:18
  */
-public class VerticalRotateDownTransformer implements ViewPager.PageTransformer {
+public class VerticalRotateDownTransformer extends KeyframeTransformer {
 
 	private static final float ROT_MOD = 75F;
 
-	@Override
-	public void transformPage(View page, float position) {
-		if(position <= -1 || position >= 1){
-			page.setRotation(0F);
-		}else{
-			final float width = page.getWidth();
-			final float height = page.getHeight();
-			final float rotation = ROT_MOD * position * -1.25F;
-			page.setPivotX(width);
-			page.setPivotY(height * 0.5F);
-			page.setRotation(rotation);
-		}
+	public VerticalRotateDownTransformer() {
+		super(new Builder()
+				.keyframe(ROTATION, -1F, ROT_MOD * 1.25F)
+				.keyframe(ROTATION, 1F, ROT_MOD * -1.25F)
+				.outside(ROTATION, 0F)
+				.constant(PIVOT_X, 1F)
+				.constant(PIVOT_Y, 0.5F)
+				.skipOutside(PIVOT_X)
+				.skipOutside(PIVOT_Y));
 	}
 
 }
@@ -1,7 +1,6 @@
 package com.huanhailiuxin.coolviewpager.transformer;
 
-import android.support.v4.view.ViewPager;
-import android.view.View;
+import static com.huanhailiuxin.coolviewpager.transformer.KeyframeTransformer.Property.*;
 
 /**
  * 对应RotateTransformer,VerticalRotateTransformer适用于CoolViewPager在垂直方向滚动的情况
@@ -11,26 +10,24 @@ import android.view.View;
  * 邮箱:wall0920@163.com
  * 2018/1/26 11:45
  */
-public class VerticalRotateTransformer implements ViewPager.PageTransformer {
-    private float MAX_ROTATE = 90F;
+public class VerticalRotateTransformer extends KeyframeTransformer {
+    private static final float MAX_ROTATE = 90F;
 
-    @Override
-    public void transformPage(View page, float position) {
-        page.setTranslationX(page.getWidth() * -position);
-        page.setTranslationY(page.getHeight() * position);
-        page.setCameraDistance(10000F);
-        if(position < -1){
-            page.setRotationX(0F);
-        }else if(position <= 0){
-            page.setPivotX(page.getWidth()/2);
-            page.setPivotY(page.getHeight());
-            page.setRotationX(MAX_ROTATE * -position);
-        }else if(position <= 1){
-            page.setPivotX(page.getWidth()/2);
-            page.setPivotY(0F);
-            page.setRotationX(MAX_ROTATE * -position);
-        }else {
-            page.setRotationX(0F);
-        }
+    public VerticalRotateTransformer() {
+        super(new Builder()
+                .keyframe(TRANSLATION_X, -1F, 1F)
+                .keyframe(TRANSLATION_X, 1F, -1F)
+                .extend(TRANSLATION_X)
+                .keyframe(TRANSLATION_Y, -1F, -1F)
+                .keyframe(TRANSLATION_Y, 1F, 1F)
+                .extend(TRANSLATION_Y)
+                .constant(CAMERA_DISTANCE, 10000F)
+                .keyframe(ROTATION_X, -1F, MAX_ROTATE)
+                .keyframe(ROTATION_X, 1F, -MAX_ROTATE)
+                .outside(ROTATION_X, 0F)
+                .constant(PIVOT_X, 0.5F)
+                .step(PIVOT_Y, 0F, 1F, 0F)
+                .skipOutside(PIVOT_X)
+                .skipOutside(PIVOT_Y));
     }
 }
@@ -1,26 +1,31 @@
 package com.huanhailiuxin.coolviewpager.transformer;
 
-import android.support.v4.view.ViewPager;
-import android.view.View;
+import static com.huanhailiuxin.coolviewpager.transformer.KeyframeTransformer.Property.*;
 
-public class ZoomInTransformer implements ViewPager.PageTransformer {
+public class ZoomInTransformer extends KeyframeTransformer {
 
-    @Override
-    public void transformPage(View page, float position) {
-        if(position <= -1 || position >= 1){
-            page.setTranslationX(0F);
-            page.setScaleX(1.0F);
-            page.setScaleY(1.0F);
-            page.setAlpha(1.0F);
-        }else{
-            page.setTranslationX(page.getWidth() * -position);
-            final float scale = position < 0 ? position + 1F : Math.abs(1F - position);
-            page.setScaleX(scale);
-            page.setScaleY(scale);
-            page.setPivotX(page.getWidth() * 0.5F);
-            page.setPivotY(page.getHeight() * 0.5F);
-            page.setAlpha(position < -1F || position > 1F ? 0F : 1F - (scale - 1F));
-        }
+    public ZoomInTransformer() {
+        super(new Builder()
+                .keyframe(TRANSLATION_X, -1F, 1F)
+                .keyframe(TRANSLATION_X, 1F, -1F)
+                .outside(TRANSLATION_X, 0F)
+                .keyframe(SCALE_X, -1F, 0F)
+                .keyframe(SCALE_X, 0F, 1F)
+                .keyframe(SCALE_X, 1F, 0F)
+                .outside(SCALE_X, 1F)
+                .keyframe(SCALE_Y, -1F, 0F)
+                .keyframe(SCALE_Y, 0F, 1F)
+                .keyframe(SCALE_Y, 1F, 0F)
+                .outside(SCALE_Y, 1F)
+                .constant(PIVOT_X, 0.5F)
+                .constant(PIVOT_Y, 0.5F)
+                //与缩放同步:中间为1,两端为2(View绘制时按1处理)
+                .keyframe(ALPHA, -1F, 2F)
+                .keyframe(ALPHA, 0F, 1F)
+                .keyframe(ALPHA, 1F, 2F)
+                .outside(ALPHA, 1F)
+                .skipOutside(PIVOT_X)
+                .skipOutside(PIVOT_Y));
     }
 
 }